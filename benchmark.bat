@@ -0,0 +1,2 @@
+java -Xss64m Benchmark > benchmark.txt
+pause
\ No newline at end of file
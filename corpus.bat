@@ -0,0 +1,5 @@
+java -Xss64m CorpusRunner -baseline out "Programs Folder" > corpus.txt
+java CorpusRunner -golden limits\golden -e -n 1000 limits >> corpus.txt
+java CorpusRunner -lexers lexer "Programs Folder" >> corpus.txt
+java CorpusRunner -allocation "Programs Folder" >> corpus.txt
+pause
\ No newline at end of file
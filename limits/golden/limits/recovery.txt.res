@@ -0,0 +1,13 @@
+Compilation Exception
+	Caused by '<statement part>' at line 1.
+	Caused by '<statement list>' at line 2.
+	Caused by '<statement>' at line 2.
+	Caused by '<assignment statement>' at line 2.
+	Caused by '<assignment statement remainder>' at line 2.
+	Caused by '<expression>' at line 2.
+	Caused by '<factor>' at line 2.
+	Caused by expected 'identifier', 'numberConstant' or '(' at line 2, found: '+'
+
+Resource Limit Exceeded
+	more than 1000 tokens at line 2
+
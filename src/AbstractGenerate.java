@@ -13,21 +13,55 @@
 public abstract class AbstractGenerate
 {
 
+    /** The sink that all output is written to; `null` until a generator that writes output needs one. */
+    protected OutputSink sink;
+
+    /**
+    *
+    * setSink
+    *
+    **/
+
+    public void setSink( OutputSink sink ) {
+        this.sink = sink;
+    } // end of method setSink
+
+    /**
+    *
+    * getSink; creates one writing to the standard output if none has been set
+    *
+    **/
+
+    public OutputSink getSink() {
+        if( sink == null )
+            sink = new OutputSink( System.out );
+        return sink;
+    } // end of method getSink
+
+    /**
+    *
+    * flush
+    *
+    **/
+
+    public void flush() {
+        if( sink != null )
+            sink.flush();
+    } // end of method flush
+
     /**
     *
-    * insertTerminal
+    * insertTerminal; the token is only valid for the duration of the call
     *
     **/
 
     public void insertTerminal( Token token ) {
-        String tt = Token.getName( token.symbol );
+        getSink().print( "rggTOKEN " ).print( Token.getName( token.symbol ) );
         
         if( (token.symbol == Token.identifier) || (token.symbol == Token.numberConstant) || (token.symbol == Token.stringConstant) )
-            tt += " '" + token.text + "'";
-
-        tt += " on line " + token.lineNumber;
+            getSink().print( " '" ).print( token.text ).print( "'" );
 
-        System.out.println( "rggTOKEN " + tt );
+        getSink().print( " on line " ).print( token.lineNumber ).println();
     } // end of method insertTerminal
 
     /**
@@ -37,7 +71,7 @@ public abstract class AbstractGenerate
     **/
 
     public void commenceNonterminal( String name ) {
-        System.out.println( "rggBEGIN " + name );
+        getSink().print( "rggBEGIN " ).print( name ).println();
     } // end of method commenceNonterminal
 
     /**
@@ -47,7 +81,27 @@ public abstract class AbstractGenerate
     **/
 
     public void finishNonterminal( String name ) {
-        System.out.println( "rggEND " + name );
+        getSink().print( "rggEND " ).print( name ).println();
+    } // end of method finishNonterminal
+
+    /**
+    *
+    * commenceNonterminal, by rule id; override this to avoid resolving the name
+    *
+    **/
+
+    public void commenceNonterminal( Rule rule ) {
+        commenceNonterminal( rule.eventName );
+    } // end of method commenceNonterminal
+
+    /**
+    *
+    * finishNonterminal, by rule id; override this to avoid resolving the name
+    *
+    **/
+
+    public void finishNonterminal( Rule rule ) {
+        finishNonterminal( rule.eventName );
     } // end of method finishNonterminal
 
     /**
@@ -58,7 +112,7 @@ public abstract class AbstractGenerate
 
     public void reportSuccess()
     {
-        System.out.println( "rggSUCCESS" );
+        getSink().print( "rggSUCCESS" ).println();
     } // end of method reportSuccess
 
 
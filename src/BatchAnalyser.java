@@ -0,0 +1,601 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a batch driver for Syntaxalyser, which parses a whole
+ ** corpus of files across all available cores.
+ **/
+ 
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class BatchAnalyser {
+   List<String> fileNames;
+   int threads;
+   boolean binary = false;
+   boolean validate = false;
+   boolean mapped = false;
+   boolean pipelined = false;
+   ParseMode mode = ParseMode.RECURSIVE;
+   boolean recovery = false;
+   ExpressionMode expressions = ExpressionMode.GRAMMAR;
+   ParseLimits limits = null;
+   ParseCache cache = null;
+   MetricsRegistry metrics = null;
+   
+   /**
+    **   Constructor function. Creates a new batch driver for the given files.
+    **
+    **   @param fileNames The names of the files to syntactically analyse, in
+    **      the order their output should be written.
+    **   @param threads The number of worker threads to parse with.
+    **/
+   public BatchAnalyser(List<String> fileNames, int threads) {
+      this.fileNames = fileNames;
+      this.threads = threads;
+   }
+   
+   /**
+    **   Sets whether the output should be written as a binary event stream
+    **   (see `BinaryGenerate`) rather than as `rgg*` text.
+    **
+    **   @param binary Whether to write binary output.
+    **/
+   public void setBinary(boolean binary) {
+      this.binary = binary;
+   }
+   
+   /**
+    **   Sets whether files should only be validated, with no events
+    **   generated, so that the output holds only the `Compilation Exception`
+    **   traces.
+    **
+    **   @param validate Whether to validate only.
+    **/
+   public void setValidate(boolean validate) {
+      this.validate = validate;
+   }
+   
+   /**
+    **   Sets whether files should be memory-mapped and scanned in place by a
+    **   `ByteBufferLexicalAnalyser` rather than read by a `LexicalAnalyser`.
+    **
+    **   @param mapped Whether to memory-map the input.
+    **/
+   public void setMapped(boolean mapped) {
+      this.mapped = mapped;
+   }
+   
+   /**
+    **   Sets whether each file should be lexed on its own thread, ahead of
+    **   the parser (see `PipelinedTokenSource`).
+    **
+    **   @param pipelined Whether to pipeline lexing and parsing.
+    **/
+   public void setPipelined(boolean pipelined) {
+      this.pipelined = pipelined;
+   }
+   
+   /**
+    **   Sets how files should be parsed, e.g. `ParseMode.ITERATIVE` for
+    **   corpora with pathologically deep nesting.
+    **
+    **   @param mode The parse mode.
+    **/
+   public void setMode(ParseMode mode) {
+      this.mode = mode;
+   }
+   
+   /**
+    **   Sets whether to recover from syntax errors, so that every error in
+    **   each file is reported rather than just the first.
+    **
+    **   @param recovery Whether to recover from syntax errors.
+    **/
+   public void setRecovery(boolean recovery) {
+      this.recovery = recovery;
+   }
+   
+   /**
+    **   Sets how expressions should be parsed, e.g. `ExpressionMode.FLAT` for
+    **   corpora with long chains of operators.
+    **
+    **   @param expressions The expression mode.
+    **/
+   public void setExpressionMode(ExpressionMode expressions) {
+      this.expressions = expressions;
+   }
+   
+   /**
+    **   Sets the resources that parsing each file may use, so that a few
+    **   huge or adversarial files can not hold up the whole batch.
+    **
+    **   @param limits The limits, or `null` for none.
+    **/
+   public void setLimits(ParseLimits limits) {
+      this.limits = limits;
+   }
+   
+   /**
+    **   Sets the cache to serve unchanged files from, and to store the
+    **   results for new or changed ones in.
+    **
+    **   @param cache The cache, or `null` to parse every file.
+    **/
+   public void setCache(ParseCache cache) {
+      this.cache = cache;
+   }
+   
+   /**
+    **   Sets the registry to record per-rule metrics of every parse in.
+    **
+    **   @param metrics The registry, or `null` not to record metrics.
+    **/
+   public void setMetrics(MetricsRegistry metrics) {
+      this.metrics = metrics;
+   }
+   
+   /**
+    **   Holds the captured output of parsing a single file.
+    **/
+   static class Result {
+      byte[] events;
+      byte[] trace;
+      long tokens;
+      boolean limited;
+      boolean failed;
+   }
+   
+   /**
+    **   Holds the analyser, generator and buffers that a worker thread reuses
+    **   from file to file.
+    **/
+   static class Worker {
+      ByteArrayOutputStream events = new ByteArrayOutputStream();
+      ByteArrayOutputStream trace = new ByteArrayOutputStream();
+      PrintStream traceStream = new PrintStream(trace);
+      AbstractGenerate output;
+      SyntaxAnalyser analyser;
+      String variant;
+      
+      Worker(boolean binary, boolean validate, ParseMode mode, boolean recovery, ExpressionMode expressions, ParseLimits limits, MetricsRegistry metrics) {
+         variant = (validate ? "validate" : binary ? "binary" : "text")+" "+mode+" "+recovery+" "+expressions+" "+limits;
+         OutputSink sink = new OutputSink(events);
+         if (validate)
+            output = new NullGenerate();
+         else
+            output = binary ? new BinaryGenerate(sink) : new Generate(sink);
+         analyser = mode.newAnalyser(metrics == null ? output : new MetricsGenerate(output, metrics), recovery, expressions);
+         analyser.setLimits(limits);
+         if (validate && metrics == null)
+            analyser.setSubscription(Subscription.none());
+      }
+   }
+   
+   /**
+    **   Parses a single file, capturing the `Generate` output and the
+    **   `Compilation Exception` trace rather than printing them, so that they
+    **   can be written out in order once the file's turn comes.
+    **
+    **   @param worker The calling thread's analyser and buffers.
+    **   @param fileName The name of the file to syntactically analyse.
+    **   @param mapped Whether to memory-map the file.
+    **   @param pipelined Whether to lex the file on its own thread.
+    **   @return The captured output.
+    **/
+   static Result analyse(Worker worker, String fileName, boolean mapped, boolean pipelined) {
+      return analyse(worker, fileName, () -> {
+         if (mapped && !pipelined)
+            return reuseTokens(ByteBufferLexicalAnalyser.map(fileName), worker.analyser);
+         TokenSource source;
+         if (mapped)
+            source = deferTexts(ByteBufferLexicalAnalyser.map(fileName));
+         else
+            source = new LexicalAnalyserSource(fileName);
+         if (pipelined)
+            source = new PipelinedTokenSource(source);
+         return source;
+      });
+   }
+   
+   /**
+    **   Defers the texts of a lexer's tokens until the analyser reading them
+    **   needs them, which is only safe when nothing else reads the tokens.
+    **
+    **   @param lexer The lexer.
+    **   @return The lexer.
+    **/
+   static ByteBufferLexicalAnalyser deferTexts(ByteBufferLexicalAnalyser lexer) {
+      lexer.setDeferredTexts(true);
+      return lexer;
+   }
+   
+   /**
+    **   Defers the texts of a lexer's tokens, as above, and has it hand out
+    **   the same token every time unless the analyser reading it holds on to
+    **   tokens, so that lexing allocates nothing. The analyser must read the
+    **   lexer directly, rather than through e.g. a `PipelinedTokenSource`.
+    **
+    **   @param lexer The lexer.
+    **   @param analyser The analyser that will read it.
+    **   @return The lexer.
+    **/
+   static ByteBufferLexicalAnalyser reuseTokens(ByteBufferLexicalAnalyser lexer, SyntaxAnalyser analyser) {
+      deferTexts(lexer);
+      lexer.setReusedToken(!analyser.holdsTokens());
+      return lexer;
+   }
+   
+   /**
+    **   Opens the token source for a file.
+    **/
+   interface SourceOpener {
+      TokenSource open() throws IOException;
+   }
+   
+   /**
+    **   Parses a single file from the given token source, capturing the
+    **   output as above.
+    **
+    **   @param worker The calling thread's analyser and buffers.
+    **   @param fileName The name of the file to syntactically analyse.
+    **   @param opener Opens the token source to read the file from.
+    **   @return The captured output.
+    **/
+   static Result analyse(Worker worker, String fileName, SourceOpener opener) {
+      Result result = new Result();
+      worker.events.reset();
+      worker.trace.reset();
+      AbstractGenerate generate = worker.output;
+      if (generate instanceof BinaryGenerate)
+         ((BinaryGenerate) generate).startFile(fileName);
+      try {
+         worker.analyser.reset(opener.open());
+         worker.analyser.parse(worker.traceStream);
+         result.tokens = worker.analyser.getTokenCount();
+         for (Diagnostic diagnostic : worker.analyser.getDiagnostics())
+            result.limited |= diagnostic.resourceLimit;
+      } catch (IOException ex) {
+         result.failed = true;
+         generate.flush();
+         worker.traceStream.println("IO Exception");
+         worker.traceStream.println("\tCaused by "+ex.getMessage());
+      }
+      worker.traceStream.flush();
+      result.events = worker.events.toByteArray();
+      result.trace = worker.trace.toByteArray();
+      return result;
+   }
+   
+   /**
+    **   Serves a single file from the cache if its content has been parsed
+    **   before, and otherwise parses it and caches the result. The file is
+    **   read once, to hash it, and a miss is parsed with the lexer the file
+    **   would have been parsed with anyway: from what was read if it was to
+    **   be memory-mapped, and from the file otherwise.
+    **
+    **   @param worker The calling thread's analyser and buffers.
+    **   @param fileName The name of the file to syntactically analyse.
+    **   @param mapped Whether to memory-map the file.
+    **   @param pipelined Whether to lex the file on its own thread.
+    **   @param cache The cache.
+    **   @return The captured output.
+    **/
+   static Result analyse(Worker worker, String fileName, boolean mapped, boolean pipelined, ParseCache cache) {
+      byte[] content;
+      try {
+         content = Files.readAllBytes(Paths.get(fileName));
+      } catch (IOException ex) {
+         return analyse(worker, fileName, mapped, pipelined);
+      }
+      return analyse(worker, fileName, content, mapped, pipelined, cache);
+   }
+   
+   /**
+    **   Serves a single file from the cache if its content has been parsed
+    **   before, and otherwise parses it and caches the result, unless the
+    **   parse was cut short by a limit or an I/O error. The key includes the
+    **   lexer, as well as the analyser's settings.
+    **
+    **   @param worker The calling thread's analyser and buffers.
+    **   @param fileName The name of the file to syntactically analyse.
+    **   @param content The content of the file, which has already been read.
+    **   @param memory Whether to lex the content from memory with a
+    **      `ByteBufferLexicalAnalyser`, rather than the file with a
+    **      `LexicalAnalyser`.
+    **   @param pipelined Whether to lex the file on its own thread.
+    **   @param cache The cache.
+    **   @return The captured output.
+    **/
+   static Result analyse(Worker worker, String fileName, byte[] content, boolean memory, boolean pipelined, ParseCache cache) {
+      // The output depends on the lexer as well as the analyser, and binary
+      // output names the file, so it can only be shared by files of the
+      // same name.
+      String variant = worker.variant+" "+(memory ? ByteBufferLexicalAnalyser.class : LexicalAnalyser.class).getName();
+      if (worker.output instanceof BinaryGenerate)
+         variant += " "+fileName;
+      String key = ParseCache.key(content, variant);
+      ParseCache.Entry entry = cache.get(key, true);
+      if (entry != null) {
+         Result result = new Result();
+         result.events = entry.events;
+         result.trace = entry.trace;
+         result.tokens = entry.tokens;
+         return result;
+      }
+      Result result;
+      if (memory) {
+         result = analyse(worker, fileName, () -> {
+            ByteBufferLexicalAnalyser lexer = new ByteBufferLexicalAnalyser(ByteBuffer.wrap(content));
+            return pipelined ? new PipelinedTokenSource(deferTexts(lexer)) : reuseTokens(lexer, worker.analyser);
+         });
+      } else {
+         result = analyse(worker, fileName, false, pipelined);
+      }
+      if (!result.limited && !result.failed)
+         cache.put(key, new ParseCache.Entry(result.trace.length == 0, result.tokens, result.trace, result.events));
+      return result;
+   }
+   
+   /**
+    **   Parses every file on a work-stealing pool, writing the output for each
+    **   file in input order regardless of the order in which they finish.
+    **   At most twice as many files as there are threads are in flight at
+    **   once, so that one slow file can only hold up a bounded number of
+    **   finished results behind it; the next file is submitted as each one
+    **   is written.
+    **
+    **   @param out The `PrintStream` to write the `rgg*` output to.
+    **   @param ps The `PrintStream` to write the `Compilation Exception`
+    **      traces to.
+    **/
+   public void run(PrintStream out, PrintStream ps) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      int window = 2 * threads;
+      ArrayDeque<ForkJoinTask<Result>> tasks = new ArrayDeque<ForkJoinTask<Result>>(window);
+      ThreadLocal<Worker> workers = ThreadLocal.withInitial(() -> new Worker(binary, validate, mode, recovery, expressions, limits, metrics));
+      long start = System.nanoTime();
+      int submitted = 0;
+      while (submitted < fileNames.size() && submitted < window)
+         tasks.add(submit(pool, workers, fileNames.get(submitted++)));
+      
+      long tokens = 0;
+      if (binary)
+         out.write(BinaryGenerate.HEADER, 0, BinaryGenerate.HEADER.length);
+      else
+         out.println("rggSTART");
+      for (int i = 0; i < fileNames.size(); i++) {
+         Result result = tasks.remove().join();
+         if (submitted < fileNames.size())
+            tasks.add(submit(pool, workers, fileNames.get(submitted++)));
+         if (!binary) {
+            out.println();
+            out.println("rggFILE "+fileNames.get(i));
+         }
+         out.write(result.events, 0, result.events.length);
+         ps.write(result.trace, 0, result.trace.length);
+         tokens += result.tokens;
+      }
+      out.flush();
+      ps.flush();
+      pool.shutdown();
+      
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.err.printf("rggSTATS %d files, %d tokens in %.3fs (%.1f files/s, %.1f tokens/s)%n",
+         fileNames.size(), tokens, seconds, fileNames.size() / seconds, tokens / seconds);
+      if (cache != null)
+         System.err.printf("rggCACHE %d hits, %d misses%n", cache.getHits(), cache.getMisses());
+   }
+   
+   /**
+    **   Submits a single file to be parsed by one of the pool's workers.
+    **
+    **   @param pool The pool to parse on.
+    **   @param workers The workers of the pool's threads.
+    **   @param fileName The name of the file to syntactically analyse.
+    **   @return The task parsing the file.
+    **/
+   ForkJoinTask<Result> submit(ForkJoinPool pool, ThreadLocal<Worker> workers, String fileName) {
+      return pool.submit(() -> cache == null
+         ? analyse(workers.get(), fileName, mapped, pipelined)
+         : analyse(workers.get(), fileName, mapped, pipelined, cache));
+   }
+   
+   /**
+    **   Expands the given arguments into a list of file names. Directories are
+    **   walked recursively and arguments beginning with `@` name a file
+    **   listing one file name per line.
+    **
+    **   @param args The files, directories and file lists to expand.
+    **   @return The file names, in a deterministic order.
+    **   @throws IOException in the event that a directory or file list can
+    **      not be read.
+    **/
+   static List<String> expand(List<String> args) throws IOException {
+      List<String> fileNames = new ArrayList<String>();
+      for (String arg : args) {
+         if (arg.startsWith("@")) {
+            for (String line : Files.readAllLines(Paths.get(arg.substring(1))))
+               if (!line.trim().isEmpty())
+                  fileNames.add(line.trim());
+         } else if (Files.isDirectory(Paths.get(arg))) {
+            try (Stream<Path> paths = Files.walk(Paths.get(arg))) {
+               paths.filter(Files::isRegularFile)
+                    .map(Path::toString)
+                    .sorted()
+                    .forEach(fileNames::add);
+            }
+         } else {
+            fileNames.add(arg);
+         }
+      }
+      return fileNames;
+   }
+   
+   /**
+    **   Runs the batch driver. Usage:
+    **
+    **      java BatchAnalyser [-j threads] [-b | -v] [-m] [-p] [-g files] [-t mode] [-e] [-x expressions] [-n tokens] [-d depth] [-w milliseconds] [-c cache [-s megabytes]] [-i metrics] [-o output] [-r results] files...
+    **
+    **   where `-b` writes the output as a binary event stream, with the
+    **   `Compilation Exception` traces going to standard error unless `-r`
+    **   is given, `-v` only validates the files, writing no events, `-m`
+    **   memory-maps the input files, `-p` lexes each file on its own thread,
+    **   `-g` streams the input
+    **   through an `Ingester`, reading the files on virtual threads with at
+    **   most the given number in flight, `-t` selects the `ParseMode`, e.g.
+    **   `-t iterative`, or `-t parallel` to split huge files across threads,
+    **   `-e` recovers from syntax errors to report all of them, `-x` selects
+    **   the `ExpressionMode`, e.g. `-x flat`, `-n`, `-d` and `-w` stop any
+    **   file that takes more than the given number of tokens, depth of nesting
+    **   or milliseconds (see `ParseLimits`), and `-c` serves unchanged files
+    **   from a `ParseCache` in the given directory, of at most `-s` megabytes
+    **   (256 by default). `-i` records per-rule metrics and writes them to
+    **   the given file every second and at the end, as Prometheus text if its
+    **   name ends in `.prom` and as JSON otherwise. `-e` and `-x` can not be
+    **   used with `-t iterative` (see `ParseMode.check()`).
+    **
+    **   @param args The command-line arguments.
+    **   @throws IOException in the event that the input or output files can
+    **      not be accessed.
+    **/
+   public static void main(String[] args) throws IOException {
+      int threads = Runtime.getRuntime().availableProcessors();
+      PrintStream out = System.out;
+      PrintStream ps = null;
+      boolean binary = false;
+      boolean validate = false;
+      boolean mapped = false;
+      boolean pipelined = false;
+      ParseMode mode = ParseMode.RECURSIVE;
+      boolean recovery = false;
+      ExpressionMode expressions = ExpressionMode.GRAMMAR;
+      ParseLimits limits = null;
+      String cache = null;
+      long cacheSize = 256;
+      String metrics = null;
+      int inFlight = 0;
+      List<String> inputs = new ArrayList<String>();
+      for (int i = 0; i < args.length; i++) {
+         switch (args[i]) {
+         case "-j":
+            threads = Integer.parseInt(args[++i]);
+            break;
+         case "-b":
+            binary = true;
+            break;
+         case "-v":
+            validate = true;
+            break;
+         case "-m":
+            mapped = true;
+            break;
+         case "-p":
+            pipelined = true;
+            break;
+         case "-g":
+            inFlight = Integer.parseInt(args[++i]);
+            break;
+         case "-t":
+            mode = ParseMode.forName(args[++i]);
+            break;
+         case "-e":
+            recovery = true;
+            break;
+         case "-x":
+            expressions = ExpressionMode.forName(args[++i]);
+            break;
+         case "-n":
+            limits = (limits == null ? new ParseLimits() : limits).tokens(Long.parseLong(args[++i]));
+            break;
+         case "-d":
+            limits = (limits == null ? new ParseLimits() : limits).depth(Integer.parseInt(args[++i]));
+            break;
+         case "-w":
+            limits = (limits == null ? new ParseLimits() : limits).timeout(Long.parseLong(args[++i]));
+            break;
+         case "-c":
+            cache = args[++i];
+            break;
+         case "-s":
+            cacheSize = Long.parseLong(args[++i]);
+            break;
+         case "-i":
+            metrics = args[++i];
+            break;
+         case "-o":
+            out = new PrintStream(new BufferedOutputStream(new FileOutputStream(args[++i])));
+            break;
+         case "-r":
+            ps = new PrintStream(new BufferedOutputStream(new FileOutputStream(args[++i])));
+            break;
+         default:
+            inputs.add(args[i]);
+         }
+      }
+      mode.check(recovery, expressions);
+      if (ps == null)
+         ps = binary ? System.err : out;
+      BatchAnalyser batch = new BatchAnalyser(inFlight > 0 ? new ArrayList<String>() : expand(inputs), threads);
+      batch.setBinary(binary);
+      batch.setValidate(validate);
+      batch.setMapped(mapped);
+      batch.setPipelined(pipelined);
+      batch.setMode(mode);
+      batch.setRecovery(recovery);
+      batch.setExpressionMode(expressions);
+      batch.setLimits(limits);
+      if (cache != null)
+         batch.setCache(new ParseCache(Paths.get(cache), cacheSize << 20));
+      MetricsRegistry registry = null;
+      if (metrics != null) {
+         registry = new MetricsRegistry();
+         registry.startSnapshots(Paths.get(metrics), 1000);
+         batch.setMetrics(registry);
+      }
+      if (inFlight > 0)
+         new Ingester(batch, inFlight).run(Ingester.walk(inputs), out, ps);
+      else
+         batch.run(out, ps);
+      if (registry != null) {
+         registry.stopSnapshots();
+         registry.write(Paths.get(metrics));
+      }
+      out.close();
+      if (ps != out && ps != System.err)
+         ps.close();
+   }
+}
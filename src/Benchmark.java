@@ -0,0 +1,349 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a micro-benchmark harness for the lexer, the parser
+ ** and the generators, so that the effect of a change on their speed and
+ ** allocation can be measured.
+ **
+ ** Each benchmark is run on generated programs of every combination of the
+ ** given sizes (number of statements) and depths (nesting of the expression
+ ** in each statement), first for a number of warm-up iterations and then for
+ ** a number of measured ones. The average time, throughput, bytes allocated
+ ** and garbage collections per operation are reported.
+ **/
+
+import java.io.*;
+import java.lang.management.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class Benchmark {
+   /**
+    **   Represents a single operation to measure.
+    **/
+   interface Operation {
+      /**
+       **   Runs the operation once.
+       **
+       **   @return The number of tokens processed.
+       **   @throws Exception in the event that the operation fails.
+       **/
+      long run() throws Exception;
+   }
+   
+   /**
+    **   An output stream that discards everything written to it.
+    **/
+   static class NullOutputStream extends OutputStream {
+      public void write(int b) {}
+      public void write(byte[] b, int off, int len) {}
+   }
+   
+   int warmup = 5;
+   int iterations = 10;
+   long minTime = 100000000L;
+   PrintStream out;
+   
+   /**
+    **   Constructor function.
+    **
+    **   @param out The `PrintStream` to print the results to.
+    **/
+   public Benchmark(PrintStream out) {
+      this.out = out;
+   }
+   
+   /**
+    **   Generates a program of the given size, each statement of which
+    **   assigns an expression nested to the given depth. A broken program
+    **   has its last expression cut off at its innermost point, so that the
+    **   error is found as deep as the nesting goes.
+    **
+    **   @param size The number of statements.
+    **   @param depth The depth of each expression.
+    **   @param broken Whether the program should fail to parse.
+    **   @return The source of the program.
+    **/
+   static byte[] program(int size, int depth, boolean broken) {
+      StringBuilder source = new StringBuilder("begin\n");
+      for (int i = 0; i < size; i++) {
+         source.append("   v").append(i % 100).append(" := ");
+         for (int j = 0; j < depth; j++)
+            source.append('(');
+         if (broken && i == size - 1) {
+            source.append(";\n");
+            break;
+         }
+         source.append('a');
+         for (int j = 0; j < depth; j++)
+            source.append(j % 2 == 0 ? " + 1)" : " * b)");
+         source.append(";\n");
+      }
+      // A statement list can not end with an expression, so end it with a
+      // call.
+      source.append("   call done(a, b)\nend\n");
+      return source.toString().getBytes();
+   }
+   
+   /**
+    **   Measures an operation, printing its results as a row of the table.
+    **
+    **   @param name The name of the benchmark.
+    **   @param size The size parameter of its input.
+    **   @param depth The depth parameter of its input.
+    **   @param bytes The size of its input in bytes.
+    **   @param operation The operation.
+    **   @throws Exception in the event that the operation fails.
+    **/
+   void measure(String name, int size, int depth, int bytes, Operation operation) throws Exception {
+      for (int i = 0; i < warmup; i++)
+         repeat(operation);
+      long ops = 0;
+      long tokens = 0;
+      long nanos = 0;
+      long allocated = 0;
+      long collections = 0;
+      long collectionTime = 0;
+      for (int i = 0; i < iterations; i++) {
+         long gcCount = gcCount();
+         long gcTime = gcTime();
+         long before = allocatedBytes();
+         long start = System.nanoTime();
+         long[] counts = repeat(operation);
+         nanos += System.nanoTime() - start;
+         allocated += allocatedBytes() - before;
+         collections += gcCount() - gcCount;
+         collectionTime += gcTime() - gcTime;
+         ops += counts[0];
+         tokens += counts[1];
+      }
+      double seconds = nanos / 1e9;
+      out.printf("%-14s %8d %6d %12.0f %12.0f %10.1f %12.0f %8.3f %8d%n",
+         name, size, depth, nanos / (double) ops, tokens / seconds, ops * (double) bytes / seconds / 1e6,
+         allocatedBytes() < 0 ? Double.NaN : allocated / (double) ops,
+         collections / (double) ops, collectionTime);
+      out.flush();
+   }
+   
+   /**
+    **   Runs an operation repeatedly until the minimum iteration time has
+    **   passed.
+    **
+    **   @param operation The operation.
+    **   @return The number of times it was run and the number of tokens
+    **      processed.
+    **   @throws Exception in the event that the operation fails.
+    **/
+   long[] repeat(Operation operation) throws Exception {
+      long ops = 0;
+      long tokens = 0;
+      long start = System.nanoTime();
+      do {
+         tokens += operation.run();
+         ops++;
+      } while (System.nanoTime() - start < minTime);
+      return new long[] { ops, tokens };
+   }
+   
+   /**
+    **   Runs every benchmark on inputs of the given sizes and depths.
+    **
+    **   @param sizes The numbers of statements.
+    **   @param depths The nesting depths.
+    **   @param filter Only benchmarks whose names contain it are run.
+    **   @throws Exception in the event that a benchmark fails.
+    **/
+   public void run(int[] sizes, int[] depths, String filter) throws Exception {
+      out.printf("%-14s %8s %6s %12s %12s %10s %12s %8s %8s%n",
+         "Benchmark", "size", "depth", "ns/op", "tokens/s", "MB/s", "B/op", "gc/op", "gc ms");
+      PrintStream discard = new PrintStream(new NullOutputStream());
+      for (int size : sizes) {
+         for (int depth : depths) {
+            byte[] valid = program(size, depth, false);
+            byte[] broken = program(size, depth, true);
+            Path file = Files.createTempFile("benchmark", ".txt");
+            Files.write(file, valid);
+            try {
+               if ("lex".contains(filter))
+                  measure("lex", size, depth, valid.length, () -> lex(new ByteBufferLexicalAnalyser(ByteBuffer.wrap(valid))));
+               if ("lexFile".contains(filter))
+                  measure("lexFile", size, depth, valid.length, () -> lex(new LexicalAnalyserSource(file.toString())));
+               
+               SyntaxAnalyser noOp = new SyntaxAnalyser(new NullGenerate());
+               if ("parseNoOp".contains(filter))
+                  measure("parseNoOp", size, depth, valid.length, () -> parse(noOp, valid, discard));
+               
+               SyntaxAnalyser validating = new SyntaxAnalyser(new NullGenerate());
+               validating.setSubscription(Subscription.none());
+               if ("parseValidate".contains(filter))
+                  measure("parseValidate", size, depth, valid.length, () -> parse(validating, valid, discard));
+               
+               SyntaxAnalyser printing = new SyntaxAnalyser(new Generate(new OutputSink(new NullOutputStream())));
+               if ("parseGenerate".contains(filter))
+                  measure("parseGenerate", size, depth, valid.length, () -> parse(printing, valid, discard));
+               if ("parseError".contains(filter))
+                  measure("parseError", size, depth, broken.length, () -> parse(printing, broken, discard));
+            } finally {
+               Files.delete(file);
+            }
+         }
+      }
+   }
+   
+   /**
+    **   Reads every token from a source.
+    **
+    **   @param source The source.
+    **   @return The number of tokens read.
+    **   @throws IOException in the event that the source can not be read.
+    **/
+   static long lex(TokenSource source) throws IOException {
+      long tokens = 0;
+      try {
+         while (source.getNextToken().symbol != Token.eofSymbol)
+            tokens++;
+      } finally {
+         source.close();
+      }
+      return tokens;
+   }
+   
+   /**
+    **   Parses a program held in memory.
+    **
+    **   @param analyser The analyser to parse with.
+    **   @param source The source of the program.
+    **   @param ps The `PrintStream` to print any trace to.
+    **   @return The number of tokens parsed.
+    **   @throws IOException in the event that the program can not be read.
+    **/
+   static long parse(SyntaxAnalyser analyser, byte[] source, PrintStream ps) throws IOException {
+      analyser.reset(new ByteBufferLexicalAnalyser(ByteBuffer.wrap(source)));
+      analyser.parse(ps);
+      return analyser.getTokenCount();
+   }
+   
+   /**
+    **   Returns the number of bytes allocated by the current thread so far.
+    **
+    **   @return The number of bytes, or -1 if the JVM can not tell.
+    **/
+   static long allocatedBytes() {
+      ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+      if (threads instanceof com.sun.management.ThreadMXBean)
+         return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+      return -1;
+   }
+   
+   /**
+    **   Returns the number of garbage collections so far.
+    **
+    **   @return The number of collections.
+    **/
+   static long gcCount() {
+      long count = 0;
+      for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+         count += Math.max(gc.getCollectionCount(), 0);
+      return count;
+   }
+   
+   /**
+    **   Returns the time spent in garbage collection so far.
+    **
+    **   @return The time in milliseconds.
+    **/
+   static long gcTime() {
+      long time = 0;
+      for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+         time += Math.max(gc.getCollectionTime(), 0);
+      return time;
+   }
+   
+   /**
+    **   Parses a comma-separated list of numbers.
+    **
+    **   @param list The list.
+    **   @return The numbers.
+    **/
+   static int[] numbers(String list) {
+      String[] parts = list.split(",");
+      int[] numbers = new int[parts.length];
+      for (int i = 0; i < parts.length; i++)
+         numbers[i] = Integer.parseInt(parts[i].trim());
+      return numbers;
+   }
+   
+   /**
+    **   Runs the benchmarks. Usage:
+    **
+    **      java Benchmark [-s sizes] [-d depths] [-w warmup] [-i iterations] [-t milliseconds] [benchmark]
+    **
+    **   where `-s` and `-d` take comma-separated lists, `-w` and `-i` set the
+    **   number of warm-up and measured iterations, `-t` sets the minimum
+    **   time of each iteration and `benchmark` is one of `lex`, `lexFile`,
+    **   `parseNoOp`, `parseValidate`, `parseGenerate` and `parseError`. Deep
+    **   inputs need a larger stack, e.g. `java -Xss64m Benchmark`.
+    **
+    **   @param args The command-line arguments.
+    **   @throws Exception in the event that a benchmark fails.
+    **/
+   public static void main(String[] args) throws Exception {
+      int[] sizes = { 1000, 100000 };
+      int[] depths = { 1, 64 };
+      String filter = "";
+      Benchmark benchmark = new Benchmark(System.out);
+      for (int i = 0; i < args.length; i++) {
+         switch (args[i]) {
+         case "-s":
+            sizes = numbers(args[++i]);
+            break;
+         case "-d":
+            depths = numbers(args[++i]);
+            break;
+         case "-w":
+            benchmark.warmup = Integer.parseInt(args[++i]);
+            break;
+         case "-i":
+            benchmark.iterations = Integer.parseInt(args[++i]);
+            break;
+         case "-t":
+            benchmark.minTime = Long.parseLong(args[++i]) * 1000000L;
+            break;
+         default:
+            filter = args[i];
+         }
+      }
+      benchmark.run(sizes, depths, filter);
+   }
+}
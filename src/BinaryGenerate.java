@@ -0,0 +1,209 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a generator that writes a compact binary event stream
+ ** instead of the textual `rgg*` output. Each event is a varint-encoded kind,
+ ** followed by its operands: rule names, token text and error messages are
+ ** interned so that each distinct string is only written once per file, and
+ ** token line numbers are written as deltas from the previous token. Rules
+ ** are written by their persisted `Rule.code`, and the stream starts with a
+ ** version, so that a decoder can refuse a stream it does not understand.
+ ** The stream can be turned back into the textual output with `TraceDecoder`.
+ **/
+
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class BinaryGenerate extends AbstractGenerate {
+   static final int START = 1;
+   static final int FILE = 2;
+   static final int BEGIN = 3;
+   static final int END = 4;
+   static final int TOKEN = 5;
+   static final int SUCCESS = 6;
+   static final int ERROR = 7;
+   static final int BEGIN_RULE = 8;
+   static final int END_RULE = 9;
+   
+   /** The version of the format, written after `START`. */
+   static final int VERSION = 1;
+   /** The start of every event stream: `START` followed by the version. */
+   static final byte[] HEADER = { START, VERSION };
+   
+   HashMap<String, Integer> strings = new HashMap<String, Integer>();
+   int lastLine = 0;
+   
+   /**
+    **   Constructor function. Creates a new generator that writes to the given
+    **   `OutputSink`.
+    **
+    **   @param sink The `OutputSink` to write the event stream to.
+    **/
+   public BinaryGenerate(OutputSink sink) {
+      this.sink = sink;
+   }
+   
+   /**
+    **   Marks the start of a new file in the event stream. The string table
+    **   and line numbering start afresh, so that the events for each file can
+    **   be written and decoded independently of one another.
+    **
+    **   @param fileName The name of the file.
+    **/
+   public void startFile(String fileName) {
+      strings.clear();
+      lastLine = 0;
+      writeVarint(FILE);
+      writeString(fileName);
+   }
+   
+   /**
+    **   Writes a token for a terminal to the event stream.
+    **
+    **   @param token The terminal token.
+    **/
+   public void insertTerminal(Token token) {
+      writeVarint(TOKEN);
+      writeVarint(token.symbol);
+      int delta = token.lineNumber - lastLine;
+      writeVarint((delta << 1) ^ (delta >> 31));
+      lastLine = token.lineNumber;
+      if((token.symbol == Token.identifier) || 
+         (token.symbol == Token.numberConstant) || 
+         (token.symbol == Token.stringConstant)) {
+         writeString(token.text);
+      }
+   }
+   
+   /**
+    **   Writes the commencement of parsing a non-terminal to the event stream.
+    **
+    **   @param name The name of the non-terminal.
+    **/
+   public void commenceNonterminal(String name) {
+      writeVarint(BEGIN);
+      writeString(name);
+   }
+   
+   /**
+    **   Writes the finishing of parsing a non-terminal to the event stream.
+    **
+    **   @param name The name of the non-terminal.
+    **/
+   public void finishNonterminal(String name) {
+      writeVarint(END);
+      writeString(name);
+   }
+   
+   /**
+    **   Writes the commencement of parsing a non-terminal to the event stream
+    **   by its persisted rule id, so that its name need not be written at all.
+    **
+    **   @param rule The non-terminal.
+    **/
+   public void commenceNonterminal(Rule rule) {
+      writeVarint(BEGIN_RULE);
+      writeVarint(rule.code);
+   }
+   
+   /**
+    **   Writes the finishing of parsing a non-terminal to the event stream by
+    **   its persisted rule id.
+    **
+    **   @param rule The non-terminal.
+    **/
+   public void finishNonterminal(Rule rule) {
+      writeVarint(END_RULE);
+      writeVarint(rule.code);
+   }
+   
+   /**
+    **   Writes that the file was successfully parsed to the event stream.
+    **/
+   public void reportSuccess() {
+      writeVarint(SUCCESS);
+   }
+   
+   /**
+    **   Writes that an error was encountered whilst parsing the file to the
+    **   event stream.
+    **
+    **   @param token The token for which the error ocurred.
+    **   @param explanatoryMessage A message for the error report.
+    **   @throws CompilationException up the call stack until it reaches the
+    **      `SyntaxAnalyser`'s `parse()` method for a stack trace.
+    **/
+   public void reportError(Token token, String explanatoryMessage) throws CompilationException {
+      writeVarint(ERROR);
+      writeString(explanatoryMessage);
+      writeString(token.text);
+      throw new StacklessCompilationException("expected "+explanatoryMessage+", found: '"+token.text+"'");
+   }
+   
+   /**
+    **   Writes an unsigned varint: seven bits per byte, least significant
+    **   first, with the top bit set on every byte but the last.
+    **
+    **   @param n The value to write.
+    **/
+   void writeVarint(int n) {
+      while ((n & ~0x7F) != 0) {
+         sink.write((n & 0x7F) | 0x80);
+         n >>>= 7;
+      }
+      sink.write(n);
+   }
+   
+   /**
+    **   Writes a reference to an interned string. The first time a string is
+    **   seen it is given the next free id, and the id is followed by the
+    **   string's UTF-8 bytes; after that only the id is written.
+    **
+    **   @param s The string to write.
+    **/
+   void writeString(String s) {
+      if (s == null)
+         s = "null";
+      Integer id = strings.get(s);
+      if (id != null) {
+         writeVarint(id);
+      } else {
+         id = strings.size();
+         strings.put(s, id);
+         byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+         writeVarint(id);
+         writeVarint(bytes.length);
+         sink.write(bytes);
+      }
+   }
+}
@@ -0,0 +1,472 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a lexical analyser that scans a `ByteBuffer` in
+ ** place, such as a memory-mapped file, rather than reading the input a
+ ** character at a time through a `Reader`. It recognises the same SCC# tokens
+ ** as `LexicalAnalyser`. Keywords and symbols are matched against the bytes
+ ** directly and share constant strings, so a new string is only created for
+ ** the text of identifiers and constants. With deferred texts, not even that
+ ** is created until the analyser hands the token to a generator or reports
+ ** an error at it, so a parse that only validates creates no strings at all.
+ ** With a reused token, every token is returned in the same `Token`, so that
+ ** lexing allocates nothing at all.
+ **/
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class ByteBufferLexicalAnalyser implements TokenSource {
+   /** The symbol given to characters that do not start any token, as by `LexicalAnalyser`. */
+   public static final int UNKNOWN_SYMBOL = Token.errorSymbol;
+   
+   static final String[] KEYWORDS = {
+      "begin", "call", "do", "else", "end", "for", "if", "loop", "procedure", "then", "until", "while"
+   };
+   static final int[] KEYWORD_SYMBOLS = {
+      Token.beginSymbol, Token.callSymbol, Token.doSymbol, Token.elseSymbol, Token.endSymbol, Token.forSymbol,
+      Token.ifSymbol, Token.loopSymbol, Token.procedureSymbol, Token.thenSymbol, Token.untilSymbol, Token.whileSymbol
+   };
+   static final byte[][] KEYWORD_BYTES = new byte[KEYWORDS.length][];
+   static {
+      for (int i = 0; i < KEYWORDS.length; i++)
+         KEYWORD_BYTES[i] = KEYWORDS[i].getBytes(StandardCharsets.US_ASCII);
+   }
+   
+   ByteBuffer buffer;
+   int position;
+   int limit;
+   int lineNumber;
+   int tokenStart;
+   InternPool pool = null;
+   String[] recent = null;
+   boolean deferred = false;
+   DeferredToken reused = null;
+   
+   /**
+    **   Holds the token of an identifier or constant whose text has not been
+    **   created yet, and where in the buffer to create it from.
+    **/
+   static class DeferredToken extends Token {
+      ByteBuffer buffer;
+      int start;
+      int end;
+      InternPool pool;
+      
+      DeferredToken(int symbol, int lineNumber, ByteBuffer buffer, int start, int end, InternPool pool) {
+         super(symbol, null, lineNumber);
+         this.buffer = buffer;
+         this.start = start;
+         this.end = end;
+         this.pool = pool;
+      }
+   }
+   
+   /**
+    **   Constructor function. Creates a new lexical analyser over the
+    **   remaining bytes of the given buffer, starting at line 1.
+    **
+    **   @param buffer The buffer to scan.
+    **/
+   public ByteBufferLexicalAnalyser(ByteBuffer buffer) {
+      this(buffer, 1);
+   }
+   
+   /**
+    **   Constructor function. Creates a new lexical analyser over the
+    **   remaining bytes of the given buffer.
+    **
+    **   @param buffer The buffer to scan.
+    **   @param lineNumber The line number of the first byte.
+    **/
+   public ByteBufferLexicalAnalyser(ByteBuffer buffer, int lineNumber) {
+      this.buffer = buffer;
+      this.position = buffer.position();
+      this.limit = buffer.limit();
+      this.lineNumber = lineNumber;
+   }
+   
+   /**
+    **   Creates a new lexical analyser over a memory-mapped file. The mapping
+    **   stays valid after the file's channel is closed.
+    **
+    **   @param fileName The name of the file to scan.
+    **   @return The lexical analyser.
+    **   @throws IOException in the event that the file can not be mapped.
+    **/
+   public static ByteBufferLexicalAnalyser map(String fileName) throws IOException {
+      try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+         return new ByteBufferLexicalAnalyser(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+      }
+   }
+   
+   /**
+    **   Creates a new lexical analyser over a file read in full into a direct
+    **   `ByteBuffer`, for file systems where mapping is not desirable.
+    **
+    **   @param fileName The name of the file to scan.
+    **   @return The lexical analyser.
+    **   @throws IOException in the event that the file can not be read.
+    **/
+   public static ByteBufferLexicalAnalyser read(String fileName) throws IOException {
+      try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+         ByteBuffer buffer = ByteBuffer.allocateDirect((int) channel.size());
+         while (buffer.hasRemaining() && channel.read(buffer) >= 0)
+            ;
+         buffer.flip();
+         return new ByteBufferLexicalAnalyser(buffer);
+      }
+   }
+   
+   /**
+    **   Sets the pool to take the text of identifiers and constants from, so
+    **   that every occurrence of a name shares the pool's string. The last
+    **   few texts are remembered and matched against the buffer directly, so
+    **   a name that repeats nearby needs no new string at all.
+    **
+    **   @param pool The pool, or `null` to create a new string each time.
+    **/
+   public void setInternPool(InternPool pool) {
+      this.pool = pool;
+      recent = (pool == null) ? null : new String[256];
+   }
+   
+   /**
+    **   Sets whether the text of identifiers and constants is left out of
+    **   their tokens until `text()` is called for them. Only tokens read by
+    **   an analyser should be deferred, as the analysers fill the text in
+    **   before a token reaches a generator or an error message.
+    **
+    **   @param deferred Whether to defer token texts.
+    **/
+   public void setDeferredTexts(boolean deferred) {
+      this.deferred = deferred;
+   }
+   
+   /**
+    **   Sets whether every token is returned in the same `Token`, refilled by
+    **   each call to `getNextToken()`, which defers the texts as above. Only
+    **   a reader that is done with each token before it reads the next, such
+    **   as an analyser that reads the lexer directly (see
+    **   `SyntaxAnalyser.holdsTokens()`), may be given a reused token.
+    **
+    **   @param reuse Whether to reuse one token.
+    **/
+   public void setReusedToken(boolean reuse) {
+      reused = reuse ? new DeferredToken(Token.eofSymbol, lineNumber, buffer, 0, 0, pool) : null;
+      if (reuse)
+         deferred = true;
+   }
+   
+   /**
+    **   Fills in the text of a token whose text was deferred, if it has not
+    **   been already, and returns it. The text of any other token is
+    **   returned as it is. The buffer is only read at absolute offsets, so
+    **   this may be called on another thread than the one lexing.
+    **
+    **   @param token The token.
+    **   @return The token's text.
+    **/
+   public static String text(Token token) {
+      if (token.text == null && token instanceof DeferredToken) {
+         DeferredToken deferred = (DeferredToken) token;
+         byte[] bytes = new byte[deferred.end - deferred.start];
+         for (int i = 0; i < bytes.length; i++)
+            bytes[i] = deferred.buffer.get(deferred.start + i);
+         String text = new String(bytes, StandardCharsets.ISO_8859_1);
+         if (deferred.pool != null && bytes.length <= deferred.pool.getMaxLength())
+            text = deferred.pool.intern(text);
+         token.text = text;
+      }
+      return token.text;
+   }
+   
+   /**
+    **   Returns the offset of the next unscanned byte in the buffer.
+    **
+    **   @return The offset.
+    **/
+   public int position() {
+      return position;
+   }
+   
+   /**
+    **   Returns the offset in the buffer of the first byte of the token most
+    **   recently returned.
+    **
+    **   @return The offset.
+    **/
+   public int tokenStart() {
+      return tokenStart;
+   }
+   
+   /**
+    **   Scans the next token from the buffer.
+    **
+    **   @return The next token.
+    **/
+   public Token getNextToken() {
+      int c = skipWhitespace();
+      tokenStart = position;
+      if (c < 0)
+         return token(Token.eofSymbol, "");
+      
+      int start = position;
+      if (isLetter(c)) {
+         do {
+            position++;
+         } while (position < limit && isLetterOrDigit(buffer.get(position)));
+         int keyword = keyword(start, position - start);
+         if (keyword >= 0)
+            return token(KEYWORD_SYMBOLS[keyword], KEYWORDS[keyword]);
+         if (deferred)
+            return deferredToken(Token.identifier, start, position);
+         return token(Token.identifier, pooledText(start, position));
+      }
+      if (isDigit(c)) {
+         do {
+            position++;
+         } while (position < limit && isDigit(buffer.get(position)));
+         if (position + 1 < limit && buffer.get(position) == '.' && isDigit(buffer.get(position + 1))) {
+            do {
+               position++;
+            } while (position < limit && isDigit(buffer.get(position)));
+         }
+         if (deferred)
+            return deferredToken(Token.numberConstant, start, position);
+         return token(Token.numberConstant, pooledText(start, position));
+      }
+      if (c == '"') {
+         position++;
+         while (position < limit && buffer.get(position) != '"' && buffer.get(position) != '\n')
+            position++;
+         int end = position;
+         if (position < limit && buffer.get(position) == '"')
+            position++;
+         if (deferred)
+            return deferredToken(Token.stringConstant, start + 1, end);
+         return token(Token.stringConstant, pooledText(start + 1, end));
+      }
+      
+      position++;
+      int next = (position < limit) ? buffer.get(position) : -1;
+      switch (c) {
+      case '+': return token(Token.plusSymbol, "+");
+      case '-': return token(Token.minusSymbol, "-");
+      case '*': return token(Token.timesSymbol, "*");
+      case '(': return token(Token.leftParenthesis, "(");
+      case ')': return token(Token.rightParenthesis, ")");
+      case ',': return token(Token.commaSymbol, ",");
+      case ';': return token(Token.semicolonSymbol, ";");
+      case '=': return token(Token.equalSymbol, "=");
+      case '/':
+         if (next == '=') {
+            position++;
+            return token(Token.notEqualSymbol, "/=");
+         }
+         return token(Token.divideSymbol, "/");
+      case '<':
+         if (next == '=') {
+            position++;
+            return token(Token.lessEqualSymbol, "<=");
+         }
+         return token(Token.lessThanSymbol, "<");
+      case '>':
+         if (next == '=') {
+            position++;
+            return token(Token.greaterEqualSymbol, ">=");
+         }
+         return token(Token.greaterThanSymbol, ">");
+      case ':':
+         if (next == '=') {
+            position++;
+            return token(Token.becomesSymbol, ":=");
+         }
+         return token(Token.colonSymbol, ":");
+      }
+      if (deferred)
+         return deferredToken(UNKNOWN_SYMBOL, start, position);
+      return token(UNKNOWN_SYMBOL, text(start, position));
+   }
+   
+   /**
+    **   Returns the token of a keyword or symbol, or of an identifier or
+    **   constant whose text has been created, on the current line.
+    **
+    **   @param symbol The symbol.
+    **   @param text The text.
+    **   @return The token, which is the reused one if there is one.
+    **/
+   Token token(int symbol, String text) {
+      if (reused == null)
+         return new Token(symbol, text, lineNumber);
+      reused.symbol = symbol;
+      reused.text = text;
+      reused.lineNumber = lineNumber;
+      return reused;
+   }
+   
+   /**
+    **   Returns a token whose text is deferred, on the current line.
+    **
+    **   @param symbol The symbol.
+    **   @param start The offset of the first byte of the text.
+    **   @param end The offset after the last byte of the text.
+    **   @return The token, which is the reused one if there is one.
+    **/
+   Token deferredToken(int symbol, int start, int end) {
+      if (reused == null)
+         return new DeferredToken(symbol, lineNumber, buffer, start, end, pool);
+      reused.symbol = symbol;
+      reused.text = null;
+      reused.lineNumber = lineNumber;
+      reused.start = start;
+      reused.end = end;
+      reused.pool = pool;
+      return reused;
+   }
+   
+   /**
+    **   Skips over whitespace, counting lines as it goes.
+    **
+    **   @return The first byte after the whitespace, or -1 at the end of the
+    **      buffer.
+    **/
+   int skipWhitespace() {
+      while (position < limit) {
+         byte b = buffer.get(position);
+         if (b == '\n')
+            lineNumber++;
+         else if (b != ' ' && b != '\t' && b != '\r' && b != '\f')
+            return b & 0xFF;
+         position++;
+      }
+      return -1;
+   }
+   
+   /**
+    **   Looks up whether the given range of the buffer is a keyword, without
+    **   creating a string for it.
+    **
+    **   @param start The offset of the first byte.
+    **   @param length The number of bytes.
+    **   @return The index of the keyword, or -1 if it is not one.
+    **/
+   int keyword(int start, int length) {
+      for (int k = 0; k < KEYWORD_BYTES.length; k++) {
+         byte[] bytes = KEYWORD_BYTES[k];
+         if (bytes.length != length)
+            continue;
+         int i = 0;
+         while (i < length && buffer.get(start + i) == bytes[i])
+            i++;
+         if (i == length)
+            return k;
+      }
+      return -1;
+   }
+   
+   /**
+    **   Creates the text of a token from a range of the buffer.
+    **
+    **   @param start The offset of the first byte.
+    **   @param end The offset after the last byte.
+    **   @return The text.
+    **/
+   String text(int start, int end) {
+      byte[] bytes = new byte[end - start];
+      for (int i = 0; i < bytes.length; i++)
+         bytes[i] = buffer.get(start + i);
+      return new String(bytes, StandardCharsets.ISO_8859_1);
+   }
+   
+   /**
+    **   Returns the text of a token from a range of the buffer, shared
+    **   through the pool if there is one.
+    **
+    **   @param start The offset of the first byte.
+    **   @param end The offset after the last byte.
+    **   @return The text.
+    **/
+   String pooledText(int start, int end) {
+      if (pool == null || end - start > pool.getMaxLength())
+         return text(start, end);
+      int hash = end - start;
+      for (int i = start; i < end; i++)
+         hash = 31 * hash + buffer.get(i);
+      int slot = (hash ^ (hash >>> 8)) & (recent.length - 1);
+      String text = recent[slot];
+      if (text != null && matches(text, start, end))
+         return text;
+      text = pool.intern(text(start, end));
+      recent[slot] = text;
+      return text;
+   }
+   
+   /**
+    **   Returns whether a string is the same as a range of the buffer. Token
+    **   texts are ISO-8859-1, so each char is one byte.
+    **/
+   boolean matches(String text, int start, int end) {
+      if (text.length() != end - start)
+         return false;
+      for (int i = 0; i < text.length(); i++)
+         if (text.charAt(i) != (buffer.get(start + i) & 0xFF))
+            return false;
+      return true;
+   }
+   
+   /**
+    **   Returns whether a byte is an ASCII letter.
+    **/
+   static boolean isLetter(int b) {
+      return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+   }
+   
+   /**
+    **   Returns whether a byte is an ASCII digit.
+    **/
+   static boolean isDigit(int b) {
+      return b >= '0' && b <= '9';
+   }
+   
+   /**
+    **   Returns whether a byte is an ASCII letter or digit.
+    **/
+   static boolean isLetterOrDigit(int b) {
+      return isLetter(b) || isDigit(b);
+   }
+}
@@ -0,0 +1,699 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents an end-to-end runner that parses a whole corpus
+ ** with a chosen generator and parse mode, checks the output against stored
+ ** golden files, and reports how fast it went.
+ **
+ ** For each file in the corpus, the golden directory holds the `rgg*` events
+ ** that `Generate` writes for it, in `<file>.out`, and the `Compilation
+ ** Exception` traces, in `<file>.res`, at the file's path as given. They are
+ ** written by a run with `-record`, normally with the default settings, and
+ ** every later run is checked against them, whatever the generator or mode,
+ ** so that the faster engines can be trusted to behave exactly as the
+ ** original one. Generators other than `Generate` are converted back to
+ ** `rgg*` text for the check, outside of the timed parse.
+ **
+ ** Golden files recorded by this analyser only show that it has not changed
+ ** since, so a run can instead be checked against a baseline: the
+ ** `output.txt` and `res.txt` that a run of the original `Compile` wrote,
+ ** such as the ones in `out`. The traces in `res.txt` are complete, and the
+ ** events in `output.txt` are matched as far as they go, a `[...]` line
+ ** standing for any number of lines left out. A file that can not be read
+ ** gets the `IO Exception` trace that `BatchAnalyser` gives it, and counts
+ ** as a mismatch.
+ **
+ ** With `-lexers`, the runner checks `ByteBufferLexicalAnalyser`, which is
+ ** written separately from `LexicalAnalyser` and used by `-m`, `BatchAnalyser
+ ** -g` and `-c`, `ParseServer` and `IncrementalParser`, against the original
+ ** token for token, rather than parsing. The files in `lexer` hold every
+ ** keyword and symbol, and the near misses of each, for this check. With
+ ** `-allocation`, it checks that lexing with a reused token, and validating
+ ** from it, allocate nothing per token.
+ **
+ ** Files are parsed one at a time on the calling thread, so that each file's
+ ** latency and allocation are its own. The corpus is parsed a number of
+ ** times to warm up first, and then measured, with the check made on the
+ ** first measured pass.
+ **/
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class CorpusRunner {
+   static final int MAX_REPORTED = 20;
+   static final String GAP = "[...]";
+   static final long ALLOCATION_ALLOWANCE = 256;
+   
+   List<String> fileNames;
+   Path golden;
+   Map<String, String> baselineEvents = null;
+   Map<String, String> baselineTraces = null;
+   String sink = "text";
+   ParseMode mode = ParseMode.RECURSIVE;
+   ExpressionMode expressions = ExpressionMode.GRAMMAR;
+   boolean recovery = false;
+   boolean mapped = false;
+   ParseLimits limits = null;
+   int warmup = 1;
+   int passes = 1;
+   PrintStream report;
+   
+   AbstractGenerate generate;
+   SyntaxAnalyser analyser;
+   ByteArrayOutputStream events = new ByteArrayOutputStream();
+   ByteArrayOutputStream trace = new ByteArrayOutputStream();
+   PrintStream traceStream = new PrintStream(trace);
+   
+   /**
+    **   Constructor function.
+    **
+    **   @param fileNames The names of the files in the corpus.
+    **   @param golden The directory of golden files.
+    **   @param report The `PrintStream` to write the report to.
+    **/
+   public CorpusRunner(List<String> fileNames, Path golden, PrintStream report) {
+      this.fileNames = fileNames;
+      this.golden = golden;
+      this.report = report;
+   }
+   
+   /**
+    **   Creates the generator and analyser for the chosen settings.
+    **/
+   void setUp() {
+      OutputSink output = new OutputSink(events);
+      switch (sink) {
+      case "text":
+         generate = new Generate(output);
+         break;
+      case "binary":
+         generate = new BinaryGenerate(output);
+         break;
+      case "tree":
+         generate = new TreeGenerate(InternPool.shared());
+         break;
+      case "recording":
+         generate = new RecordingGenerate();
+         break;
+      case "null":
+         generate = new NullGenerate();
+         break;
+      default:
+         throw new IllegalArgumentException("unknown sink "+sink);
+      }
+      analyser = mode.newAnalyser(generate, recovery, expressions);
+      analyser.setLimits(limits);
+      if (generate instanceof NullGenerate)
+         analyser.setSubscription(Subscription.none());
+   }
+   
+   /**
+    **   Parses a single file, leaving the output in `events` and `trace`. If
+    **   the file can not be read, the trace is the `IO Exception` that
+    **   `BatchAnalyser` gives.
+    **
+    **   @param fileName The name of the file.
+    **   @return Whether the file could be read.
+    **/
+   boolean parse(String fileName) {
+      events.reset();
+      trace.reset();
+      if (generate instanceof BinaryGenerate)
+         ((BinaryGenerate) generate).startFile(fileName);
+      boolean read = true;
+      try {
+         analyser.reset(mapped ? BatchAnalyser.reuseTokens(ByteBufferLexicalAnalyser.map(fileName), analyser) : new LexicalAnalyserSource(fileName));
+         analyser.parse(traceStream);
+      } catch (IOException ex) {
+         read = false;
+         generate.flush();
+         traceStream.println("IO Exception");
+         traceStream.println("\tCaused by "+ex.getMessage());
+      }
+      traceStream.flush();
+      return read;
+   }
+   
+   /**
+    **   Converts the output of the last parse back into `rgg*` text.
+    **
+    **   @return The text, or `null` if the generator keeps too little to
+    **      check, i.e. `NullGenerate`, or a tree for a file that failed.
+    **   @throws IOException in the event that the output can not be
+    **      decoded.
+    **/
+   String eventText() throws IOException {
+      ByteArrayOutputStream text = new ByteArrayOutputStream();
+      OutputSink output = new OutputSink(text);
+      switch (sink) {
+      case "text":
+         return events.toString("UTF-8");
+      case "binary":
+         // The decoder writes a blank line and the `rggFILE` line first.
+         new TraceDecoder(new ByteArrayInputStream(events.toByteArray()), output).decode();
+         String decoded = text.toString("UTF-8");
+         int start = decoded.indexOf('\n', decoded.indexOf("rggFILE")) + 1;
+         return decoded.substring(start);
+      case "tree":
+         SyntaxTree tree = ((TreeGenerate) generate).getTree();
+         if (!tree.isComplete())
+            return null;
+         Generate printer = new Generate(output);
+         tree.write(printer);
+         printer.flush();
+         return text.toString("UTF-8");
+      case "recording":
+         RecordingGenerate recording = (RecordingGenerate) generate;
+         printer = new Generate(output);
+         try {
+            recording.replay(printer);
+         } catch (CompilationException ex) {
+            // The error is printed by the replay, as by the parse.
+         }
+         printer.flush();
+         recording.clear();
+         return text.toString("UTF-8");
+      default:
+         return null;
+      }
+   }
+   
+   /**
+    **   Writes the golden files for every file in the corpus, from a parse
+    **   with the current settings. Files that can not be read are reported
+    **   and get no golden files.
+    **
+    **   @return The number of files that could not be read.
+    **   @throws IOException in the event that a golden file can not be
+    **      written.
+    **/
+   public int record() throws IOException {
+      setUp();
+      int unread = 0;
+      for (String fileName : fileNames) {
+         if (!parse(fileName)) {
+            report.printf("rggMISMATCH %s: %s%n", fileName, trace.toString("UTF-8").trim().replaceAll("\\s*\n\\s*", " "));
+            unread++;
+            continue;
+         }
+         String text = eventText();
+         if (text == null)
+            throw new IllegalStateException("the "+sink+" sink can not record golden output");
+         Path out = goldenPath(fileName, ".out");
+         Files.createDirectories(out.toAbsolutePath().getParent());
+         Files.write(out, text.getBytes(StandardCharsets.UTF_8));
+         Files.write(goldenPath(fileName, ".res"), trace.toByteArray());
+      }
+      report.printf("rggRECORD %d files to %s%n", fileNames.size() - unread, golden);
+      return unread;
+   }
+   
+   /**
+    **   Loads the output of a run of the original `Compile` to check against
+    **   in place of golden files: `output.txt`, which gives each file's
+    **   events after its `rggFILE` line, and `res.txt`, which gives the
+    **   traces of the files that failed, in the same order.
+    **
+    **   @param directory The directory that holds the two files.
+    **   @throws IOException in the event that they can not be read.
+    **/
+   public void loadBaseline(Path directory) throws IOException {
+      List<String> traces = new ArrayList<String>();
+      StringBuilder block = null;
+      for (String line : Files.readAllLines(directory.resolve("res.txt"), StandardCharsets.UTF_8)) {
+         if (line.equals("Compilation Exception")) {
+            if (block != null)
+               traces.add(block.toString());
+            block = new StringBuilder();
+         }
+         if (block != null)
+            block.append(line).append('\n');
+      }
+      if (block != null)
+         traces.add(block.toString());
+      
+      baselineEvents = new HashMap<String, String>();
+      baselineTraces = new HashMap<String, String>();
+      List<String> output = Files.readAllLines(directory.resolve("output.txt"), StandardCharsets.UTF_8);
+      String name = null;
+      StringBuilder text = null;
+      int failed = 0;
+      for (int i = 0; i <= output.size(); i++) {
+         String line = (i < output.size()) ? output.get(i) : null;
+         if (line != null && !line.startsWith("rggFILE ")) {
+            if (text != null)
+               text.append(line).append('\n');
+            continue;
+         }
+         if (name != null) {
+            // The blank line before the next `rggFILE` is not the file's.
+            String events = text.toString();
+            if (line != null && events.endsWith("\n\n"))
+               events = events.substring(0, events.length() - 1);
+            String trace = "";
+            if (events.contains("rggCOMPILATION_EXCEPTION\n")) {
+               if (failed == traces.size())
+                  throw new IllegalArgumentException("baseline "+directory+" has fewer traces than failed files");
+               trace = traces.get(failed++);
+            }
+            baselineEvents.put(name, events);
+            baselineTraces.put(name, trace);
+         }
+         if (line != null) {
+            name = baselineName(line.substring("rggFILE ".length()));
+            text = new StringBuilder();
+         }
+      }
+      if (failed != traces.size())
+         throw new IllegalArgumentException("baseline "+directory+" has more traces than failed files");
+   }
+   
+   /**
+    **   Returns the name a file goes by in the baseline, with either kind of
+    **   separator.
+    **/
+   static String baselineName(String fileName) {
+      return Paths.get(fileName.replace('\\', '/')).normalize().toString().replace('\\', '/');
+   }
+   
+   /**
+    **   Parses the corpus, checks the output of the first measured pass
+    **   against the golden files and reports the speed of the measured
+    **   passes.
+    **
+    **   @return The number of files whose output did not match.
+    **   @throws IOException in the event that a file can not be read.
+    **/
+   public int run() throws IOException {
+      setUp();
+      for (int pass = 0; pass < warmup; pass++) {
+         for (String fileName : fileNames) {
+            if (parse(fileName))
+               eventText();
+         }
+      }
+      
+      LatencyHistogram latencies = new LatencyHistogram();
+      long tokens = 0;
+      long allocated = 0;
+      long elapsed = 0;
+      int mismatched = 0;
+      for (int pass = 0; pass < passes; pass++) {
+         for (String fileName : fileNames) {
+            long allocatedBefore = Benchmark.allocatedBytes();
+            long start = System.nanoTime();
+            boolean read = parse(fileName);
+            long time = System.nanoTime() - start;
+            allocated += Benchmark.allocatedBytes() - allocatedBefore;
+            elapsed += time;
+            latencies.record(time);
+            if (!read) {
+               if (pass == 0) {
+                  report.printf("rggMISMATCH %s: %s%n", fileName, trace.toString("UTF-8").trim().replaceAll("\\s*\n\\s*", " "));
+                  mismatched++;
+               }
+               continue;
+            }
+            tokens += analyser.getTokenCount();
+            
+            String text = eventText();
+            if (pass == 0 && !check(fileName, text, trace.toString("UTF-8")))
+               mismatched++;
+         }
+      }
+      
+      long files = (long) fileNames.size() * passes;
+      double seconds = elapsed / 1e9;
+      report.printf("rggCHECK %d files, %d mismatched%n", fileNames.size(), mismatched);
+      report.printf("rggSTATS %d files, %d tokens in %.3fs (%.1f files/s, %.1f tokens/s)%n",
+         files, tokens, seconds, files / seconds, tokens / seconds);
+      report.printf("rggLATENCY p50 %.1fus, p99 %.1fus, max %.1fus%n",
+         latencies.percentile(50) / 1e3, latencies.percentile(99) / 1e3, latencies.max() / 1e3);
+      if (Benchmark.allocatedBytes() >= 0)
+         report.printf("rggALLOC %.0f bytes/file%n", allocated / (double) files);
+      return mismatched;
+   }
+   
+   /**
+    **   Lexes every file in the corpus with both `LexicalAnalyser` and
+    **   `ByteBufferLexicalAnalyser`, with its texts deferred as when parsing,
+    **   and checks that they give the same symbols, texts and line numbers,
+    **   reporting the first token that differs in each file.
+    **
+    **   @return The number of files whose tokens did not match.
+    **   @throws IOException in the event that a file can not be read.
+    **/
+   public int compareLexers() throws IOException {
+      int mismatched = 0;
+      long tokens = 0;
+      for (String fileName : fileNames) {
+         try (TokenSource expected = new LexicalAnalyserSource(fileName);
+               TokenSource actual = BatchAnalyser.deferTexts(ByteBufferLexicalAnalyser.map(fileName))) {
+            for (int index = 1; ; index++) {
+               Token a = expected.getNextToken();
+               Token b = actual.getNextToken();
+               String text = ByteBufferLexicalAnalyser.text(b);
+               if (a.symbol != b.symbol || a.lineNumber != b.lineNumber || !Objects.equals(a.text, text)) {
+                  report.printf("rggMISMATCH %s token %d: expected %s '%s' on line %d, found %s '%s' on line %d%n",
+                     fileName, index, Token.getName(a.symbol), a.text, a.lineNumber, Token.getName(b.symbol), text, b.lineNumber);
+                  mismatched++;
+                  break;
+               }
+               tokens++;
+               if (a.symbol == Token.eofSymbol)
+                  break;
+            }
+         }
+      }
+      report.printf("rggLEXERS %d files, %d tokens, %d mismatched%n", fileNames.size(), tokens, mismatched);
+      return mismatched;
+   }
+   
+   /**
+    **   Lexes every file in the corpus from memory with a reused token, and
+    **   validates it as `BatchAnalyser -m -v` does, and checks that neither
+    **   allocates anything per token: on the second of two passes, each may
+    **   allocate no more than `ALLOCATION_ALLOWANCE` bytes for the whole
+    **   file. Files with syntax errors are only lexed, as reporting an error
+    **   allocates.
+    **
+    **   @return The number of files that allocated more than that.
+    **   @throws IOException in the event that a file can not be read.
+    **/
+   public int checkAllocation() throws IOException {
+      if (Benchmark.allocatedBytes() < 0) {
+         report.println("rggALLOCATION can not be measured on this JVM");
+         return 0;
+      }
+      SyntaxAnalyser validating = new SyntaxAnalyser(new NullGenerate());
+      validating.setSubscription(Subscription.none());
+      PrintStream discard = new PrintStream(new Benchmark.NullOutputStream());
+      // Reading the counter allocates, so what one reading costs is taken
+      // off every measurement.
+      long overhead = Long.MAX_VALUE;
+      for (int i = 0; i < 16; i++) {
+         long before = Benchmark.allocatedBytes();
+         overhead = Math.min(overhead, Benchmark.allocatedBytes() - before);
+      }
+      int failed = 0;
+      long tokens = 0;
+      long allocated = 0;
+      for (int pass = 0; pass < 2; pass++) {
+         for (String fileName : fileNames) {
+            byte[] content = Files.readAllBytes(Paths.get(fileName));
+            ByteBufferLexicalAnalyser lexer = new ByteBufferLexicalAnalyser(ByteBuffer.wrap(content));
+            lexer.setReusedToken(true);
+            long before = Benchmark.allocatedBytes();
+            long lexed = Benchmark.lex(lexer);
+            long lexing = Benchmark.allocatedBytes() - before - overhead;
+            
+            lexer = new ByteBufferLexicalAnalyser(ByteBuffer.wrap(content));
+            before = Benchmark.allocatedBytes();
+            validating.reset(BatchAnalyser.reuseTokens(lexer, validating));
+            validating.parse(discard);
+            long parsing = Benchmark.allocatedBytes() - before - overhead;
+            if (!validating.getDiagnostics().isEmpty())
+               parsing = 0;
+            
+            if (pass == 1) {
+               if (lexing > ALLOCATION_ALLOWANCE || parsing > ALLOCATION_ALLOWANCE) {
+                  report.printf("rggMISMATCH %s: %d tokens allocated %d bytes to lex and %d bytes to validate%n",
+                     fileName, lexed, lexing, parsing);
+                  failed++;
+               }
+               tokens += lexed;
+               allocated += lexing + parsing;
+            }
+         }
+      }
+      report.printf("rggALLOCATION %d files, %d tokens, %.3f bytes/token, %d over %d bytes%n",
+         fileNames.size(), tokens, allocated / (double) Math.max(tokens, 1), failed, ALLOCATION_ALLOWANCE);
+      return failed;
+   }
+   
+   /**
+    **   Checks a file's output against its golden files, or the baseline if
+    **   one was loaded, reporting the first line that differs.
+    **
+    **   @param fileName The name of the file.
+    **   @param text The events as `rgg*` text, or `null` to skip them.
+    **   @param traces The `Compilation Exception` traces.
+    **   @return Whether the output matched.
+    **   @throws IOException in the event that a golden file can not be read.
+    **/
+   boolean check(String fileName, String text, String traces) throws IOException {
+      String expectedText;
+      String expectedTraces;
+      if (baselineEvents != null) {
+         expectedText = baselineEvents.get(baselineName(fileName));
+         expectedTraces = baselineTraces.get(baselineName(fileName));
+         if (expectedText == null) {
+            report.printf("rggMISMATCH %s: not in the baseline%n", fileName);
+            return false;
+         }
+      } else {
+         Path out = goldenPath(fileName, ".out");
+         Path res = goldenPath(fileName, ".res");
+         if (!Files.exists(out) || !Files.exists(res)) {
+            report.printf("rggMISMATCH %s: no golden files%n", fileName);
+            return false;
+         }
+         expectedText = new String(Files.readAllBytes(out), StandardCharsets.UTF_8);
+         expectedTraces = new String(Files.readAllBytes(res), StandardCharsets.UTF_8);
+      }
+      boolean matched = true;
+      if (text != null)
+         matched &= compare(fileName, "events", expectedText, text);
+      matched &= compare(fileName, "traces", expectedTraces, traces);
+      return matched;
+   }
+   
+   /**
+    **   Compares a file's expected and actual output line by line, reporting
+    **   the first difference. A `[...]` line in the expected output stands for
+    **   any number of lines.
+    **
+    **   @return Whether they are the same.
+    **/
+   boolean compare(String fileName, String kind, String expected, String actual) {
+      if (expected.equals(actual))
+         return true;
+      String[] expectedLines = expected.split("\r?\n", -1);
+      String[] actualLines = actual.split("\r?\n", -1);
+      int[] at = mismatch(expectedLines, actualLines);
+      if (at == null)
+         return true;
+      report.printf("rggMISMATCH %s %s line %d: expected '%s', found '%s'%n", fileName, kind, at[1] + 1,
+         at[0] < expectedLines.length ? expectedLines[at[0]] : "", at[1] < actualLines.length ? actualLines[at[1]] : "");
+      return false;
+   }
+   
+   /**
+    **   Matches lines against expected lines in which a `[...]` line stands
+    **   for any number of lines. The lines before the first gap must match
+    **   at the start and those after the last at the end, and each run in
+    **   between is matched at the earliest place it fits after the one
+    **   before, which finds a match whenever there is one.
+    **
+    **   @param expected The expected lines.
+    **   @param actual The actual lines.
+    **   @return `null` if they match, or the indices of the expected and the
+    **      actual line where they first differ.
+    **/
+   static int[] mismatch(String[] expected, String[] actual) {
+      int e = 0;
+      int a = 0;
+      while (e < expected.length && !expected[e].equals(GAP)) {
+         if (a == actual.length || !expected[e].equals(actual[a]))
+            return new int[] { e, a };
+         e++;
+         a++;
+      }
+      if (e == expected.length)
+         return (a == actual.length) ? null : new int[] { e, a };
+      while (e < expected.length) {
+         int run = ++e;
+         while (e < expected.length && !expected[e].equals(GAP))
+            e++;
+         int length = e - run;
+         if (e == expected.length) {
+            int from = actual.length - length;
+            if (from < a)
+               return new int[] { run, a };
+            for (int i = 0; i < length; i++)
+               if (!expected[run + i].equals(actual[from + i]))
+                  return new int[] { run + i, from + i };
+            return null;
+         }
+         int found = -1;
+         for (int from = a; found < 0 && from + length <= actual.length; from++) {
+            int i = 0;
+            while (i < length && expected[run + i].equals(actual[from + i]))
+               i++;
+            if (i == length)
+               found = from;
+         }
+         if (found < 0)
+            return new int[] { run, a };
+         a = found + length;
+      }
+      return null;
+   }
+   
+   /**
+    **   Returns the path of a golden file, at the corpus file's path under
+    **   the golden directory, with any root and `..` removed.
+    **
+    **   @param fileName The name of the corpus file.
+    **   @param extension `.out` or `.res`.
+    **   @return The path.
+    **/
+   Path goldenPath(String fileName, String extension) {
+      Path path = golden;
+      for (Path part : Paths.get(fileName).normalize())
+         if (!part.toString().equals(".."))
+            path = path.resolve(part.toString());
+      return path.resolveSibling(path.getFileName()+extension);
+   }
+   
+   /**
+    **   Runs the corpus runner. Usage:
+    **
+    **      java CorpusRunner (-golden directory [-record] | -baseline directory) [-sink text|binary|tree|recording|null] [-t mode] [-x expressions] [-e] [-m] [-n tokens] [-d depth] [-w passes] [-i passes] files...
+    **      java CorpusRunner -lexers files...
+    **      java CorpusRunner -allocation files...
+    **
+    **   where `-record` writes the golden files rather than checking them,
+    **   `-baseline` checks against the `output.txt` and `res.txt` of a run of
+    **   the original `Compile` in the given directory instead of golden
+    **   files (see `loadBaseline()`), `-sink` chooses the generator, `-t` the
+    **   `ParseMode` and `-x` the `ExpressionMode`, `-e` recovers from syntax
+    **   errors, `-m` memory-maps the files, `-n` and `-d` stop any file that
+    **   takes more than the given number of tokens or depth of nesting (see
+    **   `ParseLimits`), and `-w` and `-i` set the number of warm-up and
+    **   measured passes over the corpus (1 of each by default). The inputs
+    **   are expanded as by `BatchAnalyser`, leaving out anything under the
+    **   golden or baseline directory. `-lexers` compares the two lexers
+    **   instead (see `compareLexers()`), and `-allocation` checks what lexing
+    **   and validating allocate (see `checkAllocation()`). Exits with status
+    **   1 if any file's output, tokens or allocation did not match, or could
+    **   not be read.
+    **
+    **   @param args The command-line arguments.
+    **   @throws IOException in the event that a file can not be accessed.
+    **/
+   public static void main(String[] args) throws IOException {
+      String golden = null;
+      String baseline = null;
+      boolean record = false;
+      boolean lexers = false;
+      boolean allocation = false;
+      List<String> inputs = new ArrayList<String>();
+      CorpusRunner runner = new CorpusRunner(null, null, System.out);
+      for (int i = 0; i < args.length; i++) {
+         switch (args[i]) {
+         case "-golden":
+            golden = args[++i];
+            break;
+         case "-baseline":
+            baseline = args[++i];
+            break;
+         case "-record":
+            record = true;
+            break;
+         case "-lexers":
+            lexers = true;
+            break;
+         case "-allocation":
+            allocation = true;
+            break;
+         case "-sink":
+            runner.sink = args[++i];
+            break;
+         case "-t":
+            runner.mode = ParseMode.forName(args[++i]);
+            break;
+         case "-x":
+            runner.expressions = ExpressionMode.forName(args[++i]);
+            break;
+         case "-e":
+            runner.recovery = true;
+            break;
+         case "-m":
+            runner.mapped = true;
+            break;
+         case "-n":
+            runner.limits = (runner.limits == null ? new ParseLimits() : runner.limits).tokens(Long.parseLong(args[++i]));
+            break;
+         case "-d":
+            runner.limits = (runner.limits == null ? new ParseLimits() : runner.limits).depth(Integer.parseInt(args[++i]));
+            break;
+         case "-w":
+            runner.warmup = Integer.parseInt(args[++i]);
+            break;
+         case "-i":
+            runner.passes = Integer.parseInt(args[++i]);
+            break;
+         default:
+            inputs.add(args[i]);
+         }
+      }
+      if (lexers || allocation) {
+         runner.fileNames = BatchAnalyser.expand(inputs);
+         if ((lexers ? runner.compareLexers() : runner.checkAllocation()) > 0)
+            System.exit(1);
+         return;
+      }
+      if ((golden == null) == (baseline == null))
+         throw new IllegalArgumentException("give either a -golden or a -baseline directory");
+      if (record && golden == null)
+         throw new IllegalArgumentException("-record needs a -golden directory");
+      runner.mode.check(runner.recovery, runner.expressions);
+      
+      runner.golden = Paths.get(golden != null ? golden : baseline);
+      Path goldenDirectory = runner.golden.toAbsolutePath().normalize();
+      runner.fileNames = new ArrayList<String>();
+      for (String fileName : BatchAnalyser.expand(inputs))
+         if (!Paths.get(fileName).toAbsolutePath().normalize().startsWith(goldenDirectory))
+            runner.fileNames.add(fileName);
+      if (baseline != null)
+         runner.loadBaseline(runner.golden);
+      
+      if (record ? runner.record() > 0 : runner.run() > 0)
+         System.exit(1);
+   }
+}
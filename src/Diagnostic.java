@@ -0,0 +1,92 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a syntax error recorded whilst parsing with error
+ ** recovery turned on, so that every error in a file can be reported from a
+ ** single pass, or a parse stopped by its `ParseLimits`.
+ **/
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class Diagnostic {
+   /** The line of the token at which the error ocurred. */
+   public final int line;
+   /** The error message, e.g. `expected 'end' at line 5, found: '+'`. */
+   public final String message;
+   /** The `Caused by` trace, as printed after `Compilation Exception`. */
+   public final String trace;
+   /** Whether the parse was stopped by a resource limit rather than an error. */
+   public final boolean resourceLimit;
+   
+   /**
+    **   Constructor function.
+    **
+    **   @param line The line of the token at which the error ocurred.
+    **   @param message The error message.
+    **   @param trace The `Caused by` trace.
+    **/
+   public Diagnostic(int line, String message, String trace) {
+      this(line, message, trace, false);
+   }
+   
+   /**
+    **   Constructor function.
+    **
+    **   @param line The line of the token at which the error ocurred.
+    **   @param message The error message.
+    **   @param trace The trace.
+    **   @param resourceLimit Whether a resource limit was exceeded.
+    **/
+   public Diagnostic(int line, String message, String trace, boolean resourceLimit) {
+      this.line = line;
+      this.message = message;
+      this.trace = trace;
+      this.resourceLimit = resourceLimit;
+   }
+   
+   /**
+    **   Returns the heading the diagnostic is printed under.
+    **
+    **   @return `Resource Limit Exceeded` or `Compilation Exception`.
+    **/
+   public String heading() {
+      return resourceLimit ? "Resource Limit Exceeded" : "Compilation Exception";
+   }
+   
+   /**
+    **   Returns the error message.
+    **
+    **   @return The error message.
+    **/
+   public String toString() {
+      return message;
+   }
+}
@@ -0,0 +1,69 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This enum represents the ways in which an `<expression>` can be parsed.
+ ** Beyond the grammar, expressions may chain any number of operators, e.g.
+ ** `a + b * c - d`, which is parsed in a loop rather than by recursion, so
+ ** that long chains and deeply parenthesised expressions need no more of the
+ ** thread's stack than short ones.
+ **/
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public enum ExpressionMode {
+   /**
+    **   As in the grammar: a `<factor>` followed by at most one operator and
+    **   `<factor>`.
+    **/
+   GRAMMAR,
+   /**
+    **   Any number of operators, each opening an `<expression remainder>`
+    **   nested in the one before it. Expressions with at most one operator
+    **   generate exactly the same events as with `GRAMMAR`.
+    **/
+   CHAINED,
+   /**
+    **   Any number of operators, generating a single `<expression>` that
+    **   holds each operand's `<factor>` and each operator in turn, with no
+    **   `<expression remainder>`s.
+    **/
+   FLAT;
+   
+   /**
+    **   Looks up a mode by name, ignoring case.
+    **
+    **   @param name The name of the mode.
+    **   @return The mode.
+    **/
+   public static ExpressionMode forName(String name) {
+      return valueOf(name.toUpperCase());
+   }
+}
@@ -31,28 +31,57 @@
  ** running Syntaxalyser.
  **/
  
+import java.io.*;
+
 /**
  **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
  **   @version 1.0
  **/
 public class Generate extends AbstractGenerate {
+   /**
+    **   Constructor function. Creates a new generator that prints to the
+    **   standard output.
+    **/
+   public Generate() {
+      sink = new OutputSink(System.out);
+   }
+
+   /**
+    **   Constructor function. Creates a new generator that prints to the given
+    **   `PrintStream`, so that the output for each file can be captured
+    **   separately when files are parsed in parallel.
+    **
+    **   @param out The `PrintStream` to print the output to.
+    **/
+   public Generate(PrintStream out) {
+      sink = new OutputSink(out);
+   }
+
+   /**
+    **   Constructor function. Creates a new generator that writes to the given
+    **   `OutputSink`, e.g. one writing straight to a `FileChannel`.
+    **
+    **   @param sink The `OutputSink` to write the output to.
+    **/
+   public Generate(OutputSink sink) {
+      this.sink = sink;
+   }
+
    /**
     **   Takes a token for a terminal and prints it to the output.
     **
     **   @param token The terminal token.
     **/
    public void insertTerminal(Token token) {
-      String tt = Token.getName(token.symbol);
+      sink.print("rggTOKEN ").print(Token.getName(token.symbol));
      
       if((token.symbol == Token.identifier) || 
          (token.symbol == Token.numberConstant) || 
          (token.symbol == Token.stringConstant)) {
-         tt += " '" + token.text + "'";
+         sink.print(" '").print(token.text).print("'");
       }
 
-      tt += " on line " + token.lineNumber;
-
-      System.out.println("rggTOKEN " + tt);
+      sink.print(" on line ").print(token.lineNumber).println();
    }
 
    /**
@@ -61,7 +90,7 @@ public class Generate extends AbstractGenerate {
     **   @param name The name of the non-terminal.
     **/
    public void commenceNonterminal( String name ) {
-      System.out.println( "rggBEGIN " + name );
+      sink.print("rggBEGIN ").print(name).println();
    }
 
    /**
@@ -70,14 +99,14 @@ public class Generate extends AbstractGenerate {
     **   @param name The name of the non-terminal.
     **/
    public void finishNonterminal( String name ) {
-      System.out.println( "rggEND " + name );
+      sink.print("rggEND ").print(name).println();
    }
 
    /**
     **   Reports that the file was successfully parsed.
     **/
    public void reportSuccess() {
-      System.out.println( "rggSUCCESS" );
+      sink.print("rggSUCCESS").println();
    }
 
    /**
@@ -91,8 +120,8 @@ public class Generate extends AbstractGenerate {
     **      `SyntaxAnalyser`'s `parse()` method for a stack trace.
     **/
    public void reportError(Token token, String explanatoryMessage) throws CompilationException {
-      System.out.println("rggCOMPILATION_EXCEPTION");
-      System.out.println("rggEXPECTED "+explanatoryMessage+", found: '"+token.text+"'");
-      throw new CompilationException("expected "+explanatoryMessage+", found: '"+token.text+"'");
+      sink.print("rggCOMPILATION_EXCEPTION").println();
+      sink.print("rggEXPECTED ").print(explanatoryMessage).print(", found: '").print(token.text).print("'").println();
+      throw new StacklessCompilationException("expected "+explanatoryMessage+", found: '"+token.text+"'");
    }
 }
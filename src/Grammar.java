@@ -0,0 +1,449 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a context-free grammar for the table-driven parser.
+ ** It computes the FIRST and FOLLOW sets of its non-terminals, checks that it
+ ** is LL(1) and builds a dense prediction table from them.
+ **
+ ** Symbols in a production are encoded as ints: a terminal is its `Token`
+ ** symbol, and non-terminal `n` is `-1 - n`. Non-terminals below
+ ** `Rule.count()` are the rules of the same id, and produce generator events;
+ ** those above are silent helpers that stand in for the loops of the
+ ** recursive-descent analyser.
+ **/
+
+import java.util.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class Grammar {
+   static final int NO_PRODUCTION = -1;
+   
+   ArrayList<String> names = new ArrayList<String>();
+   ArrayList<int[]> productions = new ArrayList<int[]>();
+   ArrayList<Integer> heads = new ArrayList<Integer>();
+   HashMap<Integer, String> errorMessages = new HashMap<Integer, String>();
+   HashMap<Integer, Integer> defaults = new HashMap<Integer, Integer>();
+   HashMap<Integer, int[]> epsilonRestrictions = new HashMap<Integer, int[]>();
+   ArrayList<int[]> overrides = new ArrayList<int[]>();
+   
+   int[] terminals;
+   int[] columns;
+   BitSet[] first;
+   BitSet[] follow;
+   boolean[] nullable;
+   int[][] table;
+   int[][] bodies;
+   
+   /**
+    **   Constructor function. Creates a grammar whose first non-terminals
+    **   are the rules, in id order.
+    **/
+   public Grammar() {
+      for (Rule rule : Rule.RULES)
+         names.add(rule.eventName);
+   }
+   
+   /**
+    **   Encodes a rule as a symbol for use in a production.
+    **
+    **   @param rule The rule.
+    **   @return The encoded symbol.
+    **/
+   public static int nt(Rule rule) {
+      return -1 - rule.id();
+   }
+   
+   /**
+    **   Adds a silent non-terminal, which produces no generator events.
+    **
+    **   @param name A name for the non-terminal, for error reporting.
+    **   @return The encoded symbol.
+    **/
+   public int silent(String name) {
+      names.add(name);
+      return -names.size();
+   }
+   
+   /**
+    **   Adds a production.
+    **
+    **   @param head The encoded non-terminal on the left-hand side.
+    **   @param body The encoded symbols on the right-hand side.
+    **   @return The index of the production.
+    **/
+   public int production(int head, int... body) {
+      heads.add(-1 - head);
+      productions.add(body);
+      return productions.size() - 1;
+   }
+   
+   /**
+    **   Declares that a non-terminal reports an error when the lookahead
+    **   predicts none of its productions, rather than falling back to a
+    **   default one.
+    **
+    **   @param head The encoded non-terminal.
+    **   @param message The message to report, which will be followed by
+    **      ` at line N`.
+    **/
+   public void error(int head, String message) {
+      errorMessages.put(-1 - head, message);
+   }
+   
+   /**
+    **   Declares the production a non-terminal falls back to when the
+    **   lookahead predicts none of them, leaving any error to be reported
+    **   when a terminal fails to match. Non-terminals with a single production
+    **   or an empty one fall back to it without being declared.
+    **
+    **   @param head The encoded non-terminal.
+    **   @param production The index of the production.
+    **/
+   public void fallback(int head, int production) {
+      defaults.put(-1 - head, production);
+   }
+   
+   /**
+    **   Restricts the lookahead on which a non-terminal's empty production is
+    **   predicted to the given terminals, rather than its whole FOLLOW set.
+    **
+    **   @param head The encoded non-terminal.
+    **   @param lookahead The terminals.
+    **/
+   public void epsilonOnlyOn(int head, int... lookahead) {
+      epsilonRestrictions.put(-1 - head, lookahead);
+   }
+   
+   /**
+    **   Forces a prediction regardless of the FIRST and FOLLOW sets. This is
+    **   applied after the LL(1) check.
+    **
+    **   @param head The encoded non-terminal.
+    **   @param lookahead The terminal.
+    **   @param production The index of the production to predict.
+    **/
+   public void override(int head, int lookahead, int production) {
+      overrides.add(new int[] { -1 - head, lookahead, production });
+   }
+   
+   /**
+    **   Computes the FIRST and FOLLOW sets, checks that the grammar is LL(1)
+    **   and builds the prediction table.
+    **
+    **   @param start The encoded start symbol.
+    **   @throws IllegalStateException in the event that the grammar is not
+    **      LL(1).
+    **/
+   public void build(int start) {
+      collectTerminals();
+      int count = names.size();
+      computeFirst(count);
+      computeFollow(count, -1 - start);
+      
+      table = new int[count][terminals.length + 1];
+      StringBuilder conflicts = new StringBuilder();
+      for (int[] row : table)
+         Arrays.fill(row, NO_PRODUCTION);
+      for (int p = 0; p < productions.size(); p++) {
+         int head = heads.get(p);
+         BitSet predict = firstOf(productions.get(p));
+         if (nullableOf(productions.get(p)))
+            predict.or(follow[head]);
+         for (int c = predict.nextSetBit(0); c >= 0; c = predict.nextSetBit(c + 1)) {
+            if (table[head][c] != NO_PRODUCTION && table[head][c] != p)
+               conflicts.append("\n\t").append(names.get(head)).append(" on '").append(Token.getName(terminals[c])).append("'");
+            table[head][c] = p;
+         }
+      }
+      if (conflicts.length() > 0)
+         throw new IllegalStateException("grammar is not LL(1):"+conflicts);
+      
+      for (Map.Entry<Integer, int[]> restriction : epsilonRestrictions.entrySet()) {
+         int head = restriction.getKey();
+         BitSet allowed = new BitSet();
+         for (int symbol : restriction.getValue())
+            allowed.set(column(symbol));
+         for (int c = 0; c < terminals.length; c++)
+            if (table[head][c] != NO_PRODUCTION && productions.get(table[head][c]).length == 0 && !allowed.get(c))
+               table[head][c] = NO_PRODUCTION;
+      }
+      bodies = productions.toArray(new int[0][]);
+      for (int[] override : overrides)
+         table[override[0]][column(override[1])] = override[2];
+      for (int head = 0; head < count; head++) {
+         if (errorMessages.containsKey(head))
+            continue;
+         int fallback = fallbackOf(head);
+         for (int c = 0; c <= terminals.length; c++)
+            if (table[head][c] == NO_PRODUCTION)
+               table[head][c] = fallback;
+      }
+   }
+   
+   /**
+    **   Finds the production a non-terminal falls back to.
+    **
+    **   @param head The non-terminal.
+    **   @return The index of the production.
+    **   @throws IllegalStateException in the event that there is no obvious
+    **      fallback and none has been declared.
+    **/
+   int fallbackOf(int head) {
+      if (defaults.containsKey(head))
+         return defaults.get(head);
+      int only = NO_PRODUCTION;
+      int count = 0;
+      for (int p = 0; p < productions.size(); p++) {
+         if (heads.get(p) != head)
+            continue;
+         if (productions.get(p).length == 0)
+            return p;
+         only = p;
+         count++;
+      }
+      if (count != 1)
+         throw new IllegalStateException("no fallback or error for "+names.get(head));
+      return only;
+   }
+   
+   /**
+    **   Collects every terminal used in the grammar, plus the end of file,
+    **   and gives each a dense column in the prediction table. Any other
+    **   symbol shares the extra column at the end.
+    **/
+   void collectTerminals() {
+      TreeSet<Integer> symbols = new TreeSet<Integer>();
+      symbols.add(Token.eofSymbol);
+      for (int[] body : productions)
+         for (int symbol : body)
+            if (symbol >= 0)
+               symbols.add(symbol);
+      terminals = new int[symbols.size()];
+      columns = new int[symbols.last() + 1];
+      Arrays.fill(columns, symbols.size());
+      int c = 0;
+      for (int symbol : symbols) {
+         terminals[c] = symbol;
+         columns[symbol] = c++;
+      }
+   }
+   
+   /**
+    **   Returns the prediction table column for a token symbol.
+    **
+    **   @param symbol The token symbol.
+    **   @return The column.
+    **/
+   public int column(int symbol) {
+      return (symbol >= 0 && symbol < columns.length) ? columns[symbol] : terminals.length;
+   }
+   
+   /**
+    **   Computes which non-terminals can derive the empty string and the FIRST
+    **   set of each, iterating until nothing changes.
+    **
+    **   @param count The number of non-terminals.
+    **/
+   void computeFirst(int count) {
+      nullable = new boolean[count];
+      first = new BitSet[count];
+      for (int n = 0; n < count; n++)
+         first[n] = new BitSet();
+      boolean changed = true;
+      while (changed) {
+         changed = false;
+         for (int p = 0; p < productions.size(); p++) {
+            int head = heads.get(p);
+            int[] body = productions.get(p);
+            BitSet before = (BitSet) first[head].clone();
+            first[head].or(firstOf(body));
+            if (!before.equals(first[head]))
+               changed = true;
+            if (!nullable[head] && nullableOf(body)) {
+               nullable[head] = true;
+               changed = true;
+            }
+         }
+      }
+   }
+   
+   /**
+    **   Computes the FOLLOW set of each non-terminal, iterating until nothing
+    **   changes.
+    **
+    **   @param count The number of non-terminals.
+    **   @param start The start non-terminal, which is followed by the end of
+    **      file.
+    **/
+   void computeFollow(int count, int start) {
+      follow = new BitSet[count];
+      for (int n = 0; n < count; n++)
+         follow[n] = new BitSet();
+      follow[start].set(column(Token.eofSymbol));
+      boolean changed = true;
+      while (changed) {
+         changed = false;
+         for (int p = 0; p < productions.size(); p++) {
+            int[] body = productions.get(p);
+            for (int i = 0; i < body.length; i++) {
+               if (body[i] >= 0)
+                  continue;
+               int n = -1 - body[i];
+               int[] rest = Arrays.copyOfRange(body, i + 1, body.length);
+               BitSet before = (BitSet) follow[n].clone();
+               follow[n].or(firstOf(rest));
+               if (nullableOf(rest))
+                  follow[n].or(follow[heads.get(p)]);
+               if (!before.equals(follow[n]))
+                  changed = true;
+            }
+         }
+      }
+   }
+   
+   /**
+    **   Returns the FIRST set of a sequence of symbols.
+    **
+    **   @param body The encoded symbols.
+    **   @return The set of table columns.
+    **/
+   BitSet firstOf(int[] body) {
+      BitSet set = new BitSet();
+      for (int symbol : body) {
+         if (symbol >= 0) {
+            set.set(column(symbol));
+            return set;
+         }
+         set.or(first[-1 - symbol]);
+         if (!nullable[-1 - symbol])
+            return set;
+      }
+      return set;
+   }
+   
+   /**
+    **   Returns whether a sequence of symbols can derive the empty string.
+    **
+    **   @param body The encoded symbols.
+    **   @return Whether the sequence is nullable.
+    **/
+   boolean nullableOf(int[] body) {
+      for (int symbol : body)
+         if (symbol >= 0 || !nullable[-1 - symbol])
+            return false;
+      return true;
+   }
+   
+   /**
+    **   Builds the SCC# grammar, including the remainder non-terminals I have
+    **   added to it, exactly as the recursive-descent `SyntaxAnalyser`
+    **   implements it. Where the analyser deviates from the plain grammar,
+    **   the deviation is reproduced with a fallback, restriction or override,
+    **   so that both emit the same events for any input.
+    **
+    **   @return The grammar, with its prediction table built.
+    **/
+   public static Grammar scc() {
+      Grammar g = new Grammar();
+      int statementListTail = g.silent("<statement list tail>");
+      int argumentListTail = g.silent("<argument list tail>");
+      
+      g.production(nt(Rule.STATEMENT_PART), Token.beginSymbol, nt(Rule.STATEMENT_LIST), Token.endSymbol);
+      
+      g.production(nt(Rule.STATEMENT_LIST), nt(Rule.STATEMENT), statementListTail);
+      g.production(statementListTail, Token.semicolonSymbol, nt(Rule.STATEMENT), statementListTail);
+      g.production(statementListTail);
+      
+      g.production(nt(Rule.STATEMENT), nt(Rule.ASSIGNMENT_STATEMENT));
+      g.production(nt(Rule.STATEMENT), nt(Rule.IF_STATEMENT));
+      g.production(nt(Rule.STATEMENT), nt(Rule.WHILE_STATEMENT));
+      g.production(nt(Rule.STATEMENT), nt(Rule.PROCEDURE_STATEMENT));
+      g.production(nt(Rule.STATEMENT), nt(Rule.UNTIL_STATEMENT));
+      g.error(nt(Rule.STATEMENT), "'identifier', '<if statement>', '<while statement>', '<procedure statement>' or '<until statement>'");
+      
+      g.production(nt(Rule.ASSIGNMENT_STATEMENT), Token.identifier, Token.becomesSymbol, nt(Rule.ASSIGNMENT_STATEMENT_REMAINDER));
+      g.production(nt(Rule.ASSIGNMENT_STATEMENT_REMAINDER), Token.stringConstant);
+      g.fallback(nt(Rule.ASSIGNMENT_STATEMENT_REMAINDER),
+         g.production(nt(Rule.ASSIGNMENT_STATEMENT_REMAINDER), nt(Rule.EXPRESSION)));
+      
+      g.production(nt(Rule.IF_STATEMENT), Token.ifSymbol, nt(Rule.CONDITION), Token.thenSymbol, nt(Rule.STATEMENT_LIST),
+         nt(Rule.IF_STATEMENT_REMAINDER), Token.endSymbol, Token.ifSymbol);
+      g.production(nt(Rule.IF_STATEMENT_REMAINDER), Token.elseSymbol, nt(Rule.STATEMENT_LIST));
+      g.production(nt(Rule.IF_STATEMENT_REMAINDER));
+      
+      g.production(nt(Rule.WHILE_STATEMENT), Token.whileSymbol, nt(Rule.CONDITION), Token.loopSymbol, nt(Rule.STATEMENT_LIST),
+         Token.endSymbol, Token.loopSymbol);
+      g.production(nt(Rule.PROCEDURE_STATEMENT), Token.callSymbol, Token.identifier, Token.leftParenthesis, nt(Rule.ARGUMENT_LIST),
+         Token.rightParenthesis);
+      g.production(nt(Rule.UNTIL_STATEMENT), Token.doSymbol, nt(Rule.STATEMENT_LIST), Token.untilSymbol, nt(Rule.CONDITION));
+      
+      g.production(nt(Rule.EXPRESSION), nt(Rule.FACTOR), nt(Rule.EXPRESSION_REMAINDER));
+      g.production(nt(Rule.EXPRESSION_REMAINDER), Token.plusSymbol, nt(Rule.FACTOR));
+      g.production(nt(Rule.EXPRESSION_REMAINDER), Token.minusSymbol, nt(Rule.FACTOR));
+      g.production(nt(Rule.EXPRESSION_REMAINDER), Token.timesSymbol, nt(Rule.FACTOR));
+      g.production(nt(Rule.EXPRESSION_REMAINDER), Token.divideSymbol, nt(Rule.FACTOR));
+      g.production(nt(Rule.EXPRESSION_REMAINDER));
+      g.epsilonOnlyOn(nt(Rule.EXPRESSION_REMAINDER), Token.rightParenthesis, Token.semicolonSymbol);
+      g.error(nt(Rule.EXPRESSION_REMAINDER), "'+', '-', '*', '/', ')' or ';'");
+      
+      g.production(nt(Rule.FACTOR), Token.identifier);
+      g.production(nt(Rule.FACTOR), Token.numberConstant);
+      g.production(nt(Rule.FACTOR), Token.leftParenthesis, nt(Rule.EXPRESSION), Token.rightParenthesis);
+      g.error(nt(Rule.FACTOR), "'identifier', 'numberConstant' or '('");
+      
+      // The analyser's comma loop only ever runs once, as the nested list
+      // consumes every following comma, so the tail does not repeat.
+      g.production(nt(Rule.ARGUMENT_LIST), Token.identifier, argumentListTail);
+      g.production(argumentListTail, Token.commaSymbol, nt(Rule.ARGUMENT_LIST));
+      g.production(argumentListTail);
+      
+      g.production(nt(Rule.CONDITION), Token.identifier, nt(Rule.CONDITIONAL_OPERATOR), nt(Rule.CONDITION_REMAINDER));
+      g.production(nt(Rule.CONDITION_REMAINDER), Token.identifier);
+      int number = g.production(nt(Rule.CONDITION_REMAINDER), Token.numberConstant);
+      g.error(nt(Rule.CONDITION_REMAINDER), "'identifier', 'numberConstant' or 'stringConstant'");
+      
+      g.production(nt(Rule.CONDITIONAL_OPERATOR), Token.greaterThanSymbol);
+      g.production(nt(Rule.CONDITIONAL_OPERATOR), Token.greaterEqualSymbol);
+      g.production(nt(Rule.CONDITIONAL_OPERATOR), Token.equalSymbol);
+      g.production(nt(Rule.CONDITIONAL_OPERATOR), Token.notEqualSymbol);
+      g.production(nt(Rule.CONDITIONAL_OPERATOR), Token.lessThanSymbol);
+      g.production(nt(Rule.CONDITIONAL_OPERATOR), Token.lessEqualSymbol);
+      g.error(nt(Rule.CONDITIONAL_OPERATOR), "'>', '>=', '=', '/=', '<' or '<='");
+      
+      // The analyser accepts a string constant in a condition by expecting a
+      // number constant, so it is predicted but then fails to match.
+      g.override(nt(Rule.CONDITION_REMAINDER), Token.stringConstant, number);
+      
+      g.build(nt(Rule.STATEMENT_PART));
+      return g;
+   }
+}
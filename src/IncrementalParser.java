@@ -0,0 +1,947 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+/**
+ ** This class represents a parser for a file that is being edited, which
+ ** keeps the previous parse and only re-lexes and reparses what an edit
+ ** affects.
+ **
+ ** The file is parsed with error recovery on, as an editor's buffer is
+ ** rarely free of syntax errors, and the parse is kept as one recorded
+ ** segment of generator events per top-level `<statement>` of the
+ ** `<statement list>`, along with the traces of any errors recovered from in
+ ** it. An edit re-lexes and reparses just the statements it touches, and
+ ** every other segment is reused as it is, so the output is always exactly
+ ** that of `SyntaxAnalyser` with recovery on.
+ **
+ ** A statement that is not followed by a `;` ends the statement list, and
+ ** the parse of the file stops at the `end`, or at whatever error the token
+ ** after it gives. That token is only lexed when the output is written, and
+ ** the segments after it are kept as they were, so that a half-typed
+ ** statement costs no more than any other edit and completing it reuses them
+ ** again. Only an edit before the first statement, or a file with no
+ ** statements, is parsed in full.
+ **
+ ** The segments are kept in a treap, in file order, where each segment only
+ ** knows how many bytes and lines it spans, and each node the totals of its
+ ** subtree. A segment is found from an offset, and its offset and line
+ ** worked out, in logarithmic time, and the segments after an edit need no
+ ** updating at all. The source is kept in a gap buffer, so an edit only
+ ** moves the bytes between it and the previous one. Token texts are taken
+ ** from the shared `InternPool`, so the events kept for a large file hold one
+ ** string per distinct name.
+ **/
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class IncrementalParser {
+   /**
+    **   Holds the recorded events of one top-level `<statement>`, including
+    **   the `;` that follows it, if any, and is a node of the treap. A
+    **   segment spans the bytes from its first token up to the first token of
+    **   the next one, or the end of the file.
+    **/
+   static class Segment {
+      RecordingGenerate events;
+      int from;
+      int to;
+      int length;
+      int newlines;
+      /** The line the segment started on when its events were recorded. */
+      int recordedLine;
+      /** The traces of the errors recovered from, or `null` if none. */
+      String trace;
+      /** The line of the `<statement list>` the traces were built with. */
+      int listLine;
+      /** Whether the statement is followed by a `;`. */
+      boolean separated = true;
+      /** Where the statement list ends if not, from the segment's start. */
+      int breakOffset;
+      int breakNewlines;
+      
+      Segment left;
+      Segment right;
+      int priority;
+      int count;
+      int totalLength;
+      int totalNewlines;
+      int damaged;
+      int broken;
+      
+      /**
+       **   Recomputes the totals of the subtree from its children.
+       **/
+      void update() {
+         count = 1;
+         totalLength = length;
+         totalNewlines = newlines;
+         damaged = (trace == null) ? 0 : 1;
+         broken = separated ? 0 : 1;
+         for (Segment child : new Segment[] { left, right }) {
+            if (child != null) {
+               count += child.count;
+               totalLength += child.totalLength;
+               totalNewlines += child.totalNewlines;
+               damaged += child.damaged;
+               broken += child.broken;
+            }
+         }
+      }
+   }
+   
+   /**
+    **   Records the events of a parse of the whole file, noting where each
+    **   top-level `<statement>` begins: at which event, at which token, and
+    **   after how many errors had been recovered from. The same is noted for
+    **   the end of the `<statement list>`.
+    **/
+   static class SplittingGenerate extends RecordingGenerate {
+      SyntaxAnalyser analyser;
+      TokenListSource source;
+      int depth = 0;
+      int[] marks = new int[48];
+      int statements = 0;
+      int listEnd = -1;
+      int listEndToken;
+      int listEndErrors;
+      
+      public void commenceNonterminal(Rule rule) {
+         if (depth == 2 && rule == Rule.STATEMENT) {
+            if (3 * statements + 3 > marks.length)
+               marks = Arrays.copyOf(marks, marks.length * 2);
+            marks[3 * statements] = size();
+            marks[3 * statements + 1] = source.next - 1;
+            marks[3 * statements + 2] = analyser.getDiagnostics().size();
+            statements++;
+         }
+         depth++;
+         super.commenceNonterminal(rule);
+      }
+      
+      public void finishNonterminal(Rule rule) {
+         depth--;
+         if (depth == 1 && rule == Rule.STATEMENT_LIST) {
+            listEnd = size();
+            listEndToken = source.next - 1;
+            listEndErrors = analyser.getDiagnostics().size();
+         }
+         super.finishNonterminal(rule);
+      }
+   }
+   
+   /** The result of `reparse()`: the segments were replaced. */
+   static final int REPARSED = 0;
+   /** The result of `reparse()`: the last statement runs on past `hi`. */
+   static final int NEEDS_LATER = 1;
+   /** The result of `reparse()`: the first statement needs the one before. */
+   static final int NEEDS_EARLIER = 2;
+   /** The result of `reparse()`: the file has to be parsed in full. */
+   static final int FAILED = 3;
+   
+   byte[] buffer;
+   int gapStart;
+   int gapEnd;
+   
+   // The whole parse, used as it is if the statement list could not be split
+   // into segments.
+   RecordingGenerate whole;
+   String trace = null;
+   
+   // The events before the segments, from `BEGIN <statement part>` to
+   // `BEGIN <statement list>`, and the bytes before them.
+   Segment root = null;
+   int prefixEnd;
+   int prefixLength;
+   int prefixNewlines;
+   int beginLine;
+   int listLine;
+   
+   Random random = new Random();
+   long reparsedTokens;
+   
+   /**
+    **   Constructor function. Parses the given source in full.
+    **
+    **   @param source The source of the file.
+    **   @throws IOException in the event that the source can not be lexed.
+    **/
+   public IncrementalParser(byte[] source) throws IOException {
+      buffer = Arrays.copyOf(source, Math.max(source.length * 2, 64));
+      gapStart = source.length;
+      gapEnd = buffer.length;
+      fullParse();
+   }
+   
+   /**
+    **   Creates a parser for the contents of a file.
+    **
+    **   @param fileName The name of the file.
+    **   @return The parser.
+    **   @throws IOException in the event that the file can not be read.
+    **/
+   public static IncrementalParser open(String fileName) throws IOException {
+      return new IncrementalParser(Files.readAllBytes(Paths.get(fileName)));
+   }
+   
+   /**
+    **   Applies an edit to the source and reparses what it affects.
+    **
+    **   @param offset The byte offset at which the edit starts.
+    **   @param removed The number of bytes the edit removes.
+    **   @param text The text the edit inserts.
+    **   @throws IOException in the event that the source can not be lexed.
+    **/
+   public void edit(int offset, int removed, String text) throws IOException {
+      edit(offset, removed, text.getBytes(StandardCharsets.UTF_8));
+   }
+   
+   /**
+    **   Applies an edit to the source and reparses what it affects: the
+    **   statements that the edit, or the bytes either side of it, fall in.
+    **   If the last of them now runs on into the statements after, e.g.
+    **   because the edit left an expression or a block open, those are
+    **   reparsed along with them, twice as many each time; if the first of
+    **   them can not start a statement, the one before is. Failing either,
+    **   the whole file is parsed.
+    **
+    **   @param offset The byte offset at which the edit starts.
+    **   @param removed The number of bytes the edit removes.
+    **   @param inserted The bytes the edit inserts.
+    **   @throws IOException in the event that the source can not be lexed.
+    **/
+   public void edit(int offset, int removed, byte[] inserted) throws IOException {
+      int length = length();
+      if (offset < 0 || removed < 0 || offset + removed > length)
+         throw new IndexOutOfBoundsException("edit "+offset+"+"+removed+" outside 0-"+length);
+      if (root == null || offset < prefixLength) {
+         replace(offset, removed, inserted);
+         fullParse();
+         return;
+      }
+      
+      int last = root.count - 1;
+      int lo = indexAt(Math.max(offset - 1, prefixLength) - prefixLength);
+      int hi = (offset + removed == length) ? last : indexAt(offset + removed - prefixLength);
+      int shift = inserted.length - removed;
+      replace(offset, removed, inserted);
+      
+      int step = 1;
+      while (true) {
+         int regionStart = prefixLength + lengthBefore(lo);
+         int regionEnd = (hi == last) ? length() : prefixLength + lengthBefore(hi + 1) + shift;
+         int result = reparse(lo, hi, regionStart, regionEnd, hi == last);
+         if (result == REPARSED) {
+            refreshTraces();
+            return;
+         } else if (result == NEEDS_LATER && hi < last) {
+            hi = Math.min(hi + step, last);
+            step *= 2;
+         } else if (result == NEEDS_EARLIER && lo > 0) {
+            lo--;
+         } else {
+            break;
+         }
+      }
+      fullParse();
+   }
+   
+   /**
+    **   Reparses the top-level statements from `lo` to `hi`, which an edit
+    **   has just changed, and splices the result in place of their old
+    **   segments. The statements are parsed in the context they have in the
+    **   whole file, so that their events and traces are exactly as a parse
+    **   of the whole file would give. They are parsed up to the end of the
+    **   region, which must fall just after a `;`, or up to the first that is
+    **   not followed by one, the rest of the region going with it.
+    **
+    **   @param lo The index of the first affected segment.
+    **   @param hi The index of the last affected segment.
+    **   @param regionStart The offset of the first byte of `lo`.
+    **   @param regionEnd The offset after the last byte of `hi`.
+    **   @param last Whether `hi` is the last segment.
+    **   @return `REPARSED`, or why not; if not, nothing has changed.
+    **   @throws IOException in the event that the source can not be lexed.
+    **/
+   int reparse(int lo, int hi, int regionStart, int regionEnd, boolean last) throws IOException {
+      if (!isBoundary(regionStart - 1))
+         return NEEDS_EARLIER;
+      if (!last && !isBoundary(regionEnd - 1) && !isBoundary(regionEnd))
+         return NEEDS_LATER;
+      
+      int startLine = 1 + prefixNewlines + newlinesBefore(lo);
+      byte[] bytes = copy(regionStart, regionEnd);
+      ByteBufferLexicalAnalyser lexer = new ByteBufferLexicalAnalyser(ByteBuffer.wrap(bytes), startLine);
+      lexer.setInternPool(InternPool.shared());
+      ArrayList<Token> tokens = new ArrayList<Token>();
+      int[] starts = new int[64];
+      Token token;
+      while (true) {
+         token = lexer.getNextToken();
+         if (token.symbol == Token.eofSymbol && !last)
+            break;
+         if (!last && token.symbol == Token.stringConstant && lexer.position() == bytes.length)
+            return NEEDS_LATER;
+         if (tokens.size() + 1 == starts.length)
+            starts = Arrays.copyOf(starts, starts.length * 2);
+         starts[tokens.size()] = lexer.tokenStart();
+         tokens.add(token);
+         if (token.symbol == Token.eofSymbol)
+            break;
+      }
+      if (tokens.isEmpty())
+         return NEEDS_EARLIER;
+      Token terminator = last ? token : new Token(Token.eofSymbol, "", 0);
+      int end = last ? tokens.size() - 1 : tokens.size();
+      starts[end] = last ? starts[end] : bytes.length;
+      
+      RecordingGenerate events = new RecordingGenerate();
+      SyntaxAnalyser analyser = new SyntaxAnalyser(events);
+      analyser.setRecovery(true);
+      TokenListSource source = new TokenListSource(tokens, 0, tokens.size(), terminator);
+      analyser.startFragment(source);
+      int list = (lo == 0) ? analyser.nextToken.lineNumber : listLine;
+      analyser.rules.push(Rule.STATEMENT_PART, beginLine);
+      analyser.rules.push(Rule.STATEMENT_LIST, list);
+      
+      ArrayList<Segment> fresh = new ArrayList<Segment>();
+      ArrayList<Integer> firsts = new ArrayList<Integer>();
+      boolean separated;
+      int after;
+      try {
+         do {
+            int first = (analyser.nextToken == terminator) ? end : source.next - 1;
+            int from = events.size();
+            int errors = analyser.getDiagnostics().size();
+            analyser.statement();
+            separated = (analyser.nextToken.symbol == Token.semicolonSymbol);
+            if (separated)
+               analyser.acceptTerminal(Token.semicolonSymbol);
+            after = (analyser.nextToken == terminator) ? end : source.next - 1;
+            String traces = traces(analyser.getDiagnostics(), errors);
+            
+            // A statement that took no tokens at all, i.e. an empty one
+            // before the `end`, has its error kept with the one before it.
+            Segment segment;
+            if (after == first) {
+               if (fresh.isEmpty())
+                  return NEEDS_EARLIER;
+               segment = fresh.get(fresh.size() - 1);
+               segment.trace = (segment.trace == null) ? traces : (traces == null) ? segment.trace : segment.trace+traces;
+            } else {
+               segment = new Segment();
+               segment.events = events;
+               segment.from = from;
+               segment.trace = traces;
+               segment.listLine = list;
+               fresh.add(segment);
+               firsts.add(first);
+            }
+            segment.to = events.size();
+         } while (separated && (last || analyser.nextToken != terminator));
+      } catch (CompilationException ex) {
+         return FAILED;
+      }
+      if (!separated && !last && analyser.nextToken == terminator)
+         return NEEDS_LATER;
+      
+      measure(fresh, firsts, starts, bytes, 0, startLine, separated ? -1 : after);
+      Segment[] parts = split(root, lo);
+      Segment[] rest = split(parts[1], hi - lo + 1);
+      Segment middle = null;
+      for (Segment segment : fresh)
+         middle = merge(middle, segment);
+      root = merge(merge(parts[0], middle), rest[1]);
+      if (lo == 0)
+         listLine = list;
+      reparsedTokens = tokens.size();
+      return REPARSED;
+   }
+   
+   /**
+    **   Works out the bytes and lines that each of a run of new segments
+    **   spans, the last running to the end of the bytes, and where the
+    **   statement list ends if the last is not followed by a `;`.
+    **
+    **   @param fresh The segments.
+    **   @param firsts The index of the first token of each.
+    **   @param starts The offset of each token in the bytes.
+    **   @param bytes The bytes the tokens were lexed from.
+    **   @param offset The offset of the first segment in the bytes.
+    **   @param line The line the first segment starts on.
+    **   @param broken The index of the token the statement list ends at, or
+    **      -1 if the last segment is followed by a `;`.
+    **/
+   void measure(List<Segment> fresh, List<Integer> firsts, int[] starts, byte[] bytes, int offset, int line, int broken) {
+      for (int i = 0; i < fresh.size(); i++) {
+         Segment segment = fresh.get(i);
+         int next = (i + 1 < fresh.size()) ? starts[firsts.get(i + 1)] : bytes.length;
+         if (i + 1 == fresh.size() && broken >= 0) {
+            segment.separated = false;
+            segment.breakOffset = starts[broken] - offset;
+            segment.breakNewlines = newlines(bytes, offset, starts[broken]);
+         }
+         segment.length = next - offset;
+         segment.newlines = newlines(bytes, offset, next);
+         segment.recordedLine = line;
+         segment.priority = random.nextInt();
+         segment.update();
+         line += segment.newlines;
+         offset = next;
+      }
+   }
+   
+   /**
+    **   Reparses the segments whose traces are out of date, because lines
+    **   have been added or removed above them or the `<statement list>` now
+    **   starts on another line, since the traces give line numbers. Only the
+    **   subtrees that hold errors are visited, and only up to where the
+    **   statement list ends; the segments after it are brought up to date
+    **   once they are part of the output again.
+    **
+    **   @throws IOException in the event that the source can not be lexed.
+    **/
+   void refreshTraces() throws IOException {
+      if (root == null || root.damaged == 0)
+         return;
+      int[] at = new int[3];
+      listEnd(at);
+      ArrayList<int[]> stale = new ArrayList<int[]>();
+      findStale(root, 0, prefixLength, 1 + prefixNewlines, at[0], stale);
+      long reparsed = reparsedTokens;
+      int last = root.count - 1;
+      for (int i = stale.size() - 1; i >= 0; i--) {
+         int[] segment = stale.get(i);
+         boolean isLast = (segment[0] == last);
+         if (reparse(segment[0], segment[0], segment[1], isLast ? length() : segment[2], isLast) != REPARSED) {
+            fullParse();
+            return;
+         }
+         reparsed += reparsedTokens;
+      }
+      reparsedTokens = reparsed;
+   }
+   
+   /**
+    **   Collects the index, start and end of each segment with out of date
+    **   traces, in file order, up to the given index.
+    **/
+   void findStale(Segment node, int index, int offset, int line, int limit, ArrayList<int[]> stale) {
+      if (node == null || node.damaged == 0 || index > limit)
+         return;
+      findStale(node.left, index, offset, line, limit, stale);
+      index += count(node.left);
+      offset += totalLength(node.left);
+      line += totalNewlines(node.left);
+      if (index <= limit && node.trace != null && (node.recordedLine != line || node.listLine != listLine))
+         stale.add(new int[] { index, offset, offset + node.length });
+      findStale(node.right, index + 1, offset + node.length, line + node.newlines, limit, stale);
+   }
+   
+   /**
+    **   Parses the whole file, splitting the events into segments, one per
+    **   top-level statement. If there are no statements to split the events
+    **   into, the whole parse is kept as it is instead.
+    **
+    **   @throws IOException in the event that the source can not be lexed.
+    **/
+   void fullParse() throws IOException {
+      byte[] bytes = copy(0, length());
+      ByteBufferLexicalAnalyser lexer = new ByteBufferLexicalAnalyser(ByteBuffer.wrap(bytes));
+      lexer.setInternPool(InternPool.shared());
+      ArrayList<Token> tokens = new ArrayList<Token>();
+      int[] starts = new int[64];
+      Token token;
+      do {
+         token = lexer.getNextToken();
+         if (tokens.size() == starts.length)
+            starts = Arrays.copyOf(starts, starts.length * 2);
+         starts[tokens.size()] = lexer.tokenStart();
+         tokens.add(token);
+      } while (token.symbol != Token.eofSymbol);
+      
+      SplittingGenerate recording = new SplittingGenerate();
+      SyntaxAnalyser analyser = new SyntaxAnalyser(recording);
+      analyser.setRecovery(true);
+      TokenListSource source = new TokenListSource(tokens, 0, tokens.size(), token);
+      recording.analyser = analyser;
+      recording.source = source;
+      analyser.reset(source);
+      ByteArrayOutputStream traceBytes = new ByteArrayOutputStream();
+      analyser.parse(new PrintStream(traceBytes, true));
+      whole = recording;
+      trace = traceBytes.toString();
+      root = null;
+      reparsedTokens = tokens.size();
+      
+      // The events of a statement part are: BEGIN <statement part>,
+      // TOKEN begin, BEGIN <statement list>, each statement and its ';',
+      // then END <statement list> and whatever follows the list.
+      int statements = recording.statements;
+      int[] marks = recording.marks;
+      if (statements == 0 || recording.listEnd < 0 || marks[1] == recording.listEndToken)
+         return;
+      
+      prefixEnd = marks[0];
+      prefixLength = Math.min(starts[0] + tokens.get(0).text.length() + 1, starts[marks[1]]);
+      prefixNewlines = newlines(bytes, 0, prefixLength);
+      beginLine = tokens.get(0).lineNumber;
+      listLine = tokens.get(marks[1]).lineNumber;
+      List<Diagnostic> diagnostics = analyser.getDiagnostics();
+      ArrayList<Segment> segments = new ArrayList<Segment>();
+      ArrayList<Integer> firsts = new ArrayList<Integer>();
+      for (int i = 0; i < statements; i++) {
+         boolean isLast = (i + 1 == statements);
+         int nextMark = isLast ? recording.listEnd : marks[3 * i + 3];
+         int nextToken = isLast ? recording.listEndToken : marks[3 * i + 4];
+         String traces = traces(diagnostics.subList(0, isLast ? recording.listEndErrors : marks[3 * i + 5]), marks[3 * i + 2]);
+         if (nextToken == marks[3 * i + 1]) {
+            // An empty statement before the `end` is kept with the one
+            // before it, as when reparsing.
+            Segment previous = segments.get(segments.size() - 1);
+            previous.to = nextMark;
+            previous.trace = (previous.trace == null) ? traces : (traces == null) ? previous.trace : previous.trace+traces;
+            continue;
+         }
+         Segment segment = new Segment();
+         segment.events = recording;
+         segment.from = marks[3 * i];
+         segment.to = nextMark;
+         segment.trace = traces;
+         segment.listLine = listLine;
+         segments.add(segment);
+         firsts.add(marks[3 * i + 1]);
+      }
+      measure(segments, firsts, starts, bytes, prefixLength, 1 + prefixNewlines, recording.listEndToken);
+      for (Segment segment : segments)
+         root = merge(root, segment);
+      trace = null;
+   }
+   
+   /**
+    **   Parses what follows the statement list, from the token it ends at:
+    **   the `end` and end of file, or the error that token gives instead.
+    **   Only the two tokens that can decide it are lexed, straight from the
+    **   gap buffer.
+    **
+    **   @param node The segment the statement list ends with.
+    **   @param offset The offset the segment starts at.
+    **   @param line The line the segment starts on.
+    **   @param events The generator to record the events in.
+    **   @return The error, if any.
+    **   @throws IOException in the event that the source can not be lexed.
+    **/
+   List<Diagnostic> parseEnd(Segment node, int offset, int line, RecordingGenerate events) throws IOException {
+      int from = offset + node.breakOffset;
+      ArrayList<Token> tokens = new ArrayList<Token>();
+      for (int window = 256; ; window *= 2) {
+         int to = Math.min(from + window, length());
+         ByteBufferLexicalAnalyser lexer = new ByteBufferLexicalAnalyser(ByteBuffer.wrap(copy(from, to)), line + node.breakNewlines);
+         tokens.clear();
+         tokens.add(lexer.getNextToken());
+         tokens.add(lexer.getNextToken());
+         if (to == length() || lexer.position() < to)
+            break;
+      }
+      
+      // As the end of `_statementList_()`, `_statementPart_()` and `parse()`.
+      SyntaxAnalyser analyser = new SyntaxAnalyser(events);
+      analyser.setRecovery(true);
+      analyser.startFragment(new TokenListSource(tokens, 0, 2, tokens.get(1)));
+      analyser.rules.push(Rule.STATEMENT_PART, beginLine);
+      analyser.rules.push(Rule.STATEMENT_LIST, listLine);
+      try {
+         analyser.finish(Rule.STATEMENT_LIST);
+         analyser.rules.pop();
+         analyser.acceptTerminal(Token.endSymbol);
+         analyser.finish(Rule.STATEMENT_PART);
+         analyser.rules.pop();
+         analyser.acceptTerminal(Token.eofSymbol);
+      } catch (CompilationException ex) {
+         analyser.record(ex);
+      }
+      return analyser.getDiagnostics();
+   }
+   
+   /**
+    **   Prints the traces of some of the errors recovered from, as
+    **   `SyntaxAnalyser.parse()` does.
+    **
+    **   @param diagnostics The errors.
+    **   @param from The index of the first error to print.
+    **   @return The traces, or `null` if there are none.
+    **/
+   static String traces(List<Diagnostic> diagnostics, int from) {
+      if (from == diagnostics.size())
+         return null;
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      PrintStream ps = new PrintStream(bytes, true);
+      for (Diagnostic diagnostic : diagnostics.subList(from, diagnostics.size())) {
+         ps.println(diagnostic.heading());
+         ps.println(diagnostic.trace);
+      }
+      return bytes.toString();
+   }
+   
+   /**
+    **   Writes the output of parsing the file as it now stands, exactly as
+    **   `SyntaxAnalyser.parse()` would with recovery on.
+    **
+    **   @param generate The generator to send the events to.
+    **   @param ps The `PrintStream` to print any `Compilation Exception` to.
+    **   @throws IOException in the event that the source can not be lexed.
+    **/
+   public void write(AbstractGenerate generate, PrintStream ps) throws IOException {
+      StringBuilder traces = new StringBuilder();
+      try {
+         if (root == null) {
+            traces.append(trace);
+            whole.replay(generate);
+         } else {
+            whole.replay(generate, 0, prefixEnd, 0);
+            int[] at = new int[3];
+            Segment node = listEnd(at);
+            write(root, 0, at[0], generate, 1 + prefixNewlines, traces);
+            RecordingGenerate events = new RecordingGenerate();
+            List<Diagnostic> errors = parseEnd(node, at[1], at[2], events);
+            if (!errors.isEmpty())
+               traces.append(traces(errors, 0));
+            events.replay(generate);
+            if (errors.isEmpty() && root.damaged == 0)
+               generate.reportSuccess();
+         }
+      } catch (CompilationException ex) {
+         // The traces were recorded when the file was parsed.
+      }
+      generate.flush();
+      ps.print(traces);
+   }
+   
+   /**
+    **   Replays the segments of a subtree in order, up to the given index,
+    **   with each one's lines shifted to where it now starts, and collects
+    **   their traces.
+    **
+    **   @return The line after the segments replayed.
+    **/
+   int write(Segment node, int index, int limit, AbstractGenerate generate, int line, StringBuilder traces) {
+      if (node == null || index > limit)
+         return line;
+      line = write(node.left, index, limit, generate, line, traces);
+      index += count(node.left);
+      if (index > limit)
+         return line;
+      try {
+         node.events.replay(generate, node.from, node.to, line - node.recordedLine);
+      } catch (CompilationException ex) {
+         // Recovered from; the trace is kept with the segment.
+      }
+      if (node.trace != null)
+         traces.append(node.trace);
+      return write(node.right, index + 1, limit, generate, line + node.newlines, traces);
+   }
+   
+   /**
+    **   Finds the first segment not followed by a `;`, where the statement
+    **   list ends. There is always one, as the last segment is never
+    **   followed by a `;`.
+    **
+    **   @param at Set to the segment's index, offset and line.
+    **   @return The segment.
+    **/
+   Segment listEnd(int[] at) {
+      int index = 0;
+      int offset = prefixLength;
+      int line = 1 + prefixNewlines;
+      Segment node = root;
+      while (true) {
+         if (node.left != null && node.left.broken > 0) {
+            node = node.left;
+            continue;
+         }
+         index += count(node.left);
+         offset += totalLength(node.left);
+         line += totalNewlines(node.left);
+         if (!node.separated)
+            break;
+         index++;
+         offset += node.length;
+         line += node.newlines;
+         node = node.right;
+      }
+      at[0] = index;
+      at[1] = offset;
+      at[2] = line;
+      return node;
+   }
+   
+   /**
+    **   Returns the current source of the file.
+    **
+    **   @return The source.
+    **/
+   public byte[] getSource() {
+      return copy(0, length());
+   }
+   
+   /**
+    **   Returns whether the file as it now stands parses successfully.
+    **
+    **   @return Whether the file parses.
+    **   @throws IOException in the event that the source can not be lexed.
+    **/
+   public boolean isValid() throws IOException {
+      if (root == null)
+         return trace.isEmpty();
+      int[] at = new int[3];
+      Segment node = listEnd(at);
+      return root.damaged == 0 && at[0] == root.count - 1
+         && parseEnd(node, at[1], at[2], new RecordingGenerate()).isEmpty();
+   }
+   
+   /**
+    **   Returns the number of tokens lexed and parsed by the last full parse
+    **   or edit, as a measure of how much work it took.
+    **
+    **   @return The number of tokens.
+    **/
+   public long getReparsedTokens() {
+      return reparsedTokens;
+   }
+   
+   /**
+    **   Returns the index of the segment that holds the byte at the given
+    **   offset from the start of the first segment.
+    **/
+   int indexAt(int offset) {
+      int index = 0;
+      Segment node = root;
+      while (true) {
+         int left = totalLength(node.left);
+         if (offset < left) {
+            node = node.left;
+         } else if (offset < left + node.length || node.right == null) {
+            return index + count(node.left);
+         } else {
+            offset -= left + node.length;
+            index += count(node.left) + 1;
+            node = node.right;
+         }
+      }
+   }
+   
+   /**
+    **   Returns the number of bytes in the segments before the given index.
+    **/
+   int lengthBefore(int index) {
+      int length = 0;
+      for (Segment node = root; node != null; ) {
+         int left = count(node.left);
+         if (index <= left) {
+            node = node.left;
+         } else {
+            length += totalLength(node.left) + node.length;
+            index -= left + 1;
+            node = node.right;
+         }
+      }
+      return length;
+   }
+   
+   /**
+    **   Returns the number of lines in the segments before the given index.
+    **/
+   int newlinesBefore(int index) {
+      int newlines = 0;
+      for (Segment node = root; node != null; ) {
+         int left = count(node.left);
+         if (index <= left) {
+            node = node.left;
+         } else {
+            newlines += totalNewlines(node.left) + node.newlines;
+            index -= left + 1;
+            node = node.right;
+         }
+      }
+      return newlines;
+   }
+   
+   static int count(Segment node) {
+      return (node == null) ? 0 : node.count;
+   }
+   
+   static int totalLength(Segment node) {
+      return (node == null) ? 0 : node.totalLength;
+   }
+   
+   static int totalNewlines(Segment node) {
+      return (node == null) ? 0 : node.totalNewlines;
+   }
+   
+   /**
+    **   Joins two treaps, every segment of the first coming before every
+    **   segment of the second.
+    **
+    **   @return The joined treap.
+    **/
+   static Segment merge(Segment a, Segment b) {
+      if (a == null)
+         return b;
+      if (b == null)
+         return a;
+      if (a.priority > b.priority) {
+         a.right = merge(a.right, b);
+         a.update();
+         return a;
+      }
+      b.left = merge(a, b.left);
+      b.update();
+      return b;
+   }
+   
+   /**
+    **   Splits a treap in two, the first holding its first `index` segments.
+    **
+    **   @return The two treaps.
+    **/
+   static Segment[] split(Segment node, int index) {
+      if (node == null)
+         return new Segment[2];
+      if (index <= count(node.left)) {
+         Segment[] parts = split(node.left, index);
+         node.left = parts[1];
+         node.update();
+         parts[1] = node;
+         return parts;
+      }
+      Segment[] parts = split(node.right, index - count(node.left) - 1);
+      node.right = parts[0];
+      node.update();
+      parts[0] = node;
+      return parts;
+   }
+   
+   /**
+    **   Returns the length of the source.
+    **/
+   int length() {
+      return buffer.length - (gapEnd - gapStart);
+   }
+   
+   /**
+    **   Returns the byte of the source at the given offset.
+    **/
+   byte byteAt(int offset) {
+      return buffer[offset < gapStart ? offset : offset + gapEnd - gapStart];
+   }
+   
+   /**
+    **   Copies a range of the source out of the gap buffer.
+    **
+    **   @param from The offset of the first byte.
+    **   @param to The offset after the last byte.
+    **   @return The bytes.
+    **/
+   byte[] copy(int from, int to) {
+      byte[] bytes = new byte[to - from];
+      int before = Math.max(0, Math.min(to, gapStart) - from);
+      System.arraycopy(buffer, from, bytes, 0, before);
+      System.arraycopy(buffer, from + before + gapEnd - gapStart, bytes, before, bytes.length - before);
+      return bytes;
+   }
+   
+   /**
+    **   Replaces a range of the source, moving the gap to it first.
+    **
+    **   @param offset The offset of the first byte to replace.
+    **   @param removed The number of bytes to remove.
+    **   @param inserted The bytes to insert.
+    **/
+   void replace(int offset, int removed, byte[] inserted) {
+      if (offset < gapStart) {
+         int moved = gapStart - offset;
+         System.arraycopy(buffer, offset, buffer, gapEnd - moved, moved);
+         gapStart -= moved;
+         gapEnd -= moved;
+      } else if (offset > gapStart) {
+         int moved = offset - gapStart;
+         System.arraycopy(buffer, gapEnd, buffer, gapStart, moved);
+         gapStart += moved;
+         gapEnd += moved;
+      }
+      gapEnd += removed;
+      if (gapEnd - gapStart < inserted.length) {
+         int after = buffer.length - gapEnd;
+         byte[] grown = new byte[Math.max(buffer.length * 2, length() + inserted.length + 64)];
+         System.arraycopy(buffer, 0, grown, 0, gapStart);
+         System.arraycopy(buffer, gapEnd, grown, grown.length - after, after);
+         buffer = grown;
+         gapEnd = grown.length - after;
+      }
+      System.arraycopy(inserted, 0, buffer, gapStart, inserted.length);
+      gapStart += inserted.length;
+   }
+   
+   /**
+    **   Returns whether the byte at the given offset separates tokens, so
+    **   that text on either side of it can be lexed independently.
+    **
+    **   @param offset The offset.
+    **   @return Whether the byte is a separator; the edges of the source
+    **      count as separators.
+    **/
+   boolean isBoundary(int offset) {
+      if (offset < 0 || offset >= length())
+         return true;
+      byte b = byteAt(offset);
+      return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '\f'
+         || b == ';' || b == '(' || b == ')' || b == ',';
+   }
+   
+   /**
+    **   Counts the newlines in a range of bytes.
+    **
+    **   @param bytes The bytes.
+    **   @param from The index of the first byte.
+    **   @param to The index after the last byte.
+    **   @return The number of newlines.
+    **/
+   static int newlines(byte[] bytes, int from, int to) {
+      int count = 0;
+      for (int i = from; i < to; i++)
+         if (bytes[i] == '\n')
+            count++;
+      return count;
+   }
+}
@@ -0,0 +1,356 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents an ingestion pipeline for corpora of huge numbers of
+ ** small files, where opening and reading the files costs more than parsing
+ ** them.
+ **
+ ** Files are read on virtual threads where the JVM has them, and otherwise
+ ** on a large pool of platform threads, so that many blocking opens and
+ ** reads can be outstanding at once. Each file's content is then parsed from
+ ** memory by a `ByteBufferLexicalAnalyser` on a pool of one thread per core,
+ ** and the results are written out in input order. At most a fixed number of
+ ** files are in flight, from being read until their output is written, and
+ ** the inputs are walked lazily, so memory use stays bounded however many
+ ** files there are.
+ **/
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class Ingester {
+   static final int PLATFORM_READERS = 256;
+   
+   BatchAnalyser batch;
+   int inFlight;
+   
+   // The results that have arrived out of order, by their position in the
+   // input, and the position of the next one to write.
+   HashMap<Long, BatchAnalyser.Result> pending = new HashMap<Long, BatchAnalyser.Result>();
+   long next = 0;
+   long total = -1;
+   Throwable failure = null;
+   
+   /**
+    **   Constructor function.
+    **
+    **   @param batch The batch driver whose settings to parse with.
+    **   @param inFlight The most files to hold at once.
+    **/
+   public Ingester(BatchAnalyser batch, int inFlight) {
+      this.batch = batch;
+      this.inFlight = inFlight;
+   }
+   
+   /**
+    **   Parses every file, writing the output for each in input order.
+    **
+    **   @param fileNames The names of the files, e.g. from `walk()`.
+    **   @param out The `PrintStream` to write the `rgg*` output to.
+    **   @param ps The `PrintStream` to write the `Compilation Exception`
+    **      traces to.
+    **   @throws IOException in the event that the inputs can not be walked.
+    **/
+   public void run(Iterator<String> fileNames, PrintStream out, PrintStream ps) throws IOException {
+      ExecutorService readers = newReaders();
+      ExecutorService parsers = Executors.newFixedThreadPool(batch.threads);
+      ThreadLocal<BatchAnalyser.Worker> workers = ThreadLocal.withInitial(() ->
+         new BatchAnalyser.Worker(batch.binary, batch.validate, batch.mode, batch.recovery, batch.expressions, batch.limits, batch.metrics));
+      Semaphore permits = new Semaphore(inFlight);
+      long start = System.nanoTime();
+      
+      // File names are only needed for the output, so they are kept along
+      // with the in-flight files rather than for the whole corpus.
+      HashMap<Long, String> names = new HashMap<Long, String>();
+      Thread producer = new Thread(() -> {
+         long count = 0;
+         try {
+            while (fileNames.hasNext()) {
+               String fileName = fileNames.next();
+               permits.acquire();
+               long position = count++;
+               synchronized (this) {
+                  names.put(position, fileName);
+               }
+               readers.execute(() -> {
+                  try {
+                     byte[] content = null;
+                     IOException error = null;
+                     try {
+                        content = read(fileName);
+                     } catch (IOException ex) {
+                        error = ex;
+                     }
+                     byte[] read = content;
+                     IOException failed = error;
+                     parsers.execute(() -> {
+                        try {
+                           arrive(position, parse(workers.get(), fileName, read, failed));
+                        } catch (Throwable ex) {
+                           fail(ex);
+                        }
+                     });
+                  } catch (Throwable ex) {
+                     fail(ex);
+                  }
+               });
+            }
+         } catch (Throwable ex) {
+            fail(ex);
+         }
+         synchronized (this) {
+            total = count;
+            notifyAll();
+         }
+      }, "Ingester");
+      producer.setDaemon(true);
+      producer.start();
+      
+      long tokens = 0;
+      long files = 0;
+      if (batch.binary)
+         out.write(BinaryGenerate.HEADER, 0, BinaryGenerate.HEADER.length);
+      else
+         out.println("rggSTART");
+      try {
+         while (true) {
+            BatchAnalyser.Result result;
+            String fileName;
+            synchronized (this) {
+               while (!pending.containsKey(next) && next != total && failure == null)
+                  wait();
+               if (failure != null)
+                  throw new IOException("could not ingest the input", failure);
+               if (next == total)
+                  break;
+               result = pending.remove(next);
+               fileName = names.remove(next);
+               next++;
+            }
+            if (!batch.binary) {
+               out.println();
+               out.println("rggFILE "+fileName);
+            }
+            out.write(result.events, 0, result.events.length);
+            ps.write(result.trace, 0, result.trace.length);
+            tokens += result.tokens;
+            files++;
+            permits.release();
+         }
+      } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+      } finally {
+         readers.shutdownNow();
+         parsers.shutdownNow();
+      }
+      out.flush();
+      ps.flush();
+      
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.err.printf("rggSTATS %d files, %d tokens in %.3fs (%.1f files/s, %.1f tokens/s)%n",
+         files, tokens, seconds, files / seconds, tokens / seconds);
+      if (batch.cache != null)
+         System.err.printf("rggCACHE %d hits, %d misses%n", batch.cache.getHits(), batch.cache.getMisses());
+   }
+   
+   /**
+    **   Parses a file's content, or records the error it could not be read
+    **   with, in the same way as `BatchAnalyser`.
+    **/
+   BatchAnalyser.Result parse(BatchAnalyser.Worker worker, String fileName, byte[] content, IOException error) {
+      if (content == null)
+         return BatchAnalyser.analyse(worker, fileName, () -> {
+            throw error;
+         });
+      if (batch.cache != null)
+         return BatchAnalyser.analyse(worker, fileName, content, true, false, batch.cache);
+      return BatchAnalyser.analyse(worker, fileName, () -> BatchAnalyser.reuseTokens(new ByteBufferLexicalAnalyser(ByteBuffer.wrap(content)), worker.analyser));
+   }
+   
+   /**
+    **   Reads a file into memory. The file is opened in the same way as
+    **   `BatchAnalyser` does, so that a file which can not be opened is
+    **   reported in the same way.
+    **
+    **   @param fileName The name of the file.
+    **   @return The content of the file.
+    **   @throws IOException in the event that the file can not be read.
+    **/
+   static byte[] read(String fileName) throws IOException {
+      try (FileInputStream in = new FileInputStream(fileName)) {
+         ByteArrayOutputStream content = new ByteArrayOutputStream((int) Math.max(in.getChannel().size(), 32));
+         byte[] buffer = new byte[8192];
+         for (int n; (n = in.read(buffer)) > 0; )
+            content.write(buffer, 0, n);
+         return content.toByteArray();
+      }
+   }
+   
+   /**
+    **   Stops the run, in the event that walking, reading or parsing fails
+    **   other than by a file not being readable, which would otherwise leave
+    **   the writer waiting for a result that never comes.
+    **
+    **   @param ex The cause of the failure.
+    **/
+   synchronized void fail(Throwable ex) {
+      if (failure == null)
+         failure = ex;
+      notifyAll();
+   }
+   
+   /**
+    **   Hands a result over to be written once its turn comes.
+    **
+    **   @param position The file's position in the input.
+    **   @param result The result.
+    **/
+   synchronized void arrive(long position, BatchAnalyser.Result result) {
+      pending.put(position, result);
+      if (position == next)
+         notifyAll();
+   }
+   
+   /**
+    **   Creates the executor to read files on: one virtual thread per file if
+    **   the JVM has virtual threads, and a pool of platform threads if not.
+    **   The executor is looked up reflectively so that the code still runs
+    **   on JVMs without it.
+    **
+    **   @return The executor.
+    **/
+   static ExecutorService newReaders() {
+      try {
+         Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+         return (ExecutorService) factory.invoke(null);
+      } catch (ReflectiveOperationException ex) {
+         return Executors.newFixedThreadPool(PLATFORM_READERS, task -> {
+            Thread thread = new Thread(task, "Ingester reader");
+            thread.setDaemon(true);
+            return thread;
+         });
+      }
+   }
+   
+   /**
+    **   Walks the given arguments lazily, in the same way as
+    **   `BatchAnalyser.expand()`, but without holding all of the file names
+    **   at once. Each directory's entries are sorted and visited depth-first,
+    **   so only the listings of the directories being walked are held.
+    **
+    **   @param args The files, directories and file lists to walk.
+    **   @return The file names.
+    **/
+   public static Iterator<String> walk(List<String> args) {
+      return new Iterator<String>() {
+         Iterator<String> inputs = args.iterator();
+         ArrayDeque<Iterator<Path>> directories = new ArrayDeque<Iterator<Path>>();
+         BufferedReader list = null;
+         String nextName = null;
+         
+         public boolean hasNext() {
+            if (nextName == null)
+               nextName = advance();
+            return nextName != null;
+         }
+         
+         public String next() {
+            if (!hasNext())
+               throw new NoSuchElementException();
+            String name = nextName;
+            nextName = null;
+            return name;
+         }
+         
+         String advance() {
+            try {
+               while (true) {
+                  if (list != null) {
+                     String line = list.readLine();
+                     if (line == null) {
+                        list.close();
+                        list = null;
+                     } else if (!line.trim().isEmpty()) {
+                        return line.trim();
+                     }
+                  } else if (!directories.isEmpty()) {
+                     Iterator<Path> entries = directories.peek();
+                     if (!entries.hasNext()) {
+                        directories.pop();
+                     } else {
+                        Path entry = entries.next();
+                        if (Files.isDirectory(entry))
+                           directories.push(list(entry));
+                        else if (Files.isRegularFile(entry))
+                           return entry.toString();
+                     }
+                  } else if (inputs.hasNext()) {
+                     String arg = inputs.next();
+                     if (arg.startsWith("@"))
+                        list = Files.newBufferedReader(Paths.get(arg.substring(1)));
+                     else if (Files.isDirectory(Paths.get(arg)))
+                        directories.push(list(Paths.get(arg)));
+                     else
+                        return arg;
+                  } else {
+                     return null;
+                  }
+               }
+            } catch (IOException ex) {
+               throw new UncheckedIOException(ex);
+            }
+         }
+      };
+   }
+   
+   /**
+    **   Lists a directory's entries in order.
+    **
+    **   @param directory The directory.
+    **   @return The entries.
+    **   @throws IOException in the event that the directory can not be read.
+    **/
+   static Iterator<Path> list(Path directory) throws IOException {
+      ArrayList<Path> entries = new ArrayList<Path>();
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+         for (Path entry : stream)
+            entries.add(entry);
+      }
+      Collections.sort(entries);
+      return entries.iterator();
+   }
+}
@@ -0,0 +1,166 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a pool of token texts shared across files and
+ ** threads, such as identifier names and constants, which repeat many times
+ ** over a corpus. Each text in the pool is held once and has a stable int
+ ** id, so that anything which keeps parse results, e.g. `TreeGenerate`, can
+ ** store an int per token rather than its own copy of the text.
+ **
+ ** The pool is bounded: once it holds `capacity` texts, or for texts longer
+ ** than `maxLength`, it gives out no more ids, and callers keep their own
+ ** strings instead. Ids are never reused or reassigned, so they stay valid
+ ** for as long as the pool lives.
+ **/
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class InternPool {
+   /** The id given out for texts that the pool does not hold. */
+   public static final int NONE = -1;
+   
+   static final int PAGE_BITS = 12;
+   static final int PAGE_SIZE = 1 << PAGE_BITS;
+   static final int DEFAULT_CAPACITY = 1 << 20;
+   static final int DEFAULT_MAX_LENGTH = 64;
+   static final InternPool SHARED = new InternPool(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+   
+   ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+   AtomicReferenceArray<String[]> pages;
+   AtomicInteger next = new AtomicInteger();
+   int capacity;
+   int maxLength;
+   
+   /**
+    **   Constructor function.
+    **
+    **   @param capacity The most texts to hold.
+    **   @param maxLength The longest text to hold.
+    **/
+   public InternPool(int capacity, int maxLength) {
+      this.capacity = capacity;
+      this.maxLength = maxLength;
+      pages = new AtomicReferenceArray<String[]>((capacity + PAGE_SIZE - 1) >>> PAGE_BITS);
+   }
+   
+   /**
+    **   Returns the pool shared by the whole process, which holds up to a
+    **   million texts of up to 64 characters.
+    **
+    **   @return The shared pool.
+    **/
+   public static InternPool shared() {
+      return SHARED;
+   }
+   
+   /**
+    **   Returns the id of a text, adding it to the pool if it is not there
+    **   yet and there is room.
+    **
+    **   @param text The text.
+    **   @return Its id, or `NONE` if the pool does not hold it.
+    **/
+   public int id(String text) {
+      Integer id = ids.get(text);
+      if (id != null)
+         return id;
+      if (text.length() > maxLength || next.get() >= capacity)
+         return NONE;
+      id = ids.computeIfAbsent(text, this::assign);
+      return (id == null) ? NONE : id;
+   }
+   
+   /**
+    **   Returns the text with the given id.
+    **
+    **   @param id The id, as given out by `id()`.
+    **   @return The text.
+    **/
+   public String text(int id) {
+      return pages.get(id >>> PAGE_BITS)[id & (PAGE_SIZE - 1)];
+   }
+   
+   /**
+    **   Returns the pool's copy of a text, so that equal texts kept from many
+    **   files share one string.
+    **
+    **   @param text The text.
+    **   @return The pool's copy, or `text` itself if the pool does not hold
+    **      it.
+    **/
+   public String intern(String text) {
+      int id = id(text);
+      return (id == NONE) ? text : text(id);
+   }
+   
+   /**
+    **   Returns the number of texts in the pool.
+    **
+    **   @return The number of texts.
+    **/
+   public int size() {
+      return Math.min(next.get(), capacity);
+   }
+   
+   /**
+    **   Returns the longest text the pool will hold.
+    **
+    **   @return The length.
+    **/
+   public int getMaxLength() {
+      return maxLength;
+   }
+   
+   /**
+    **   Gives a new text the next id, unless the pool is full. Called at most
+    **   once per text, by `computeIfAbsent()`, so the text is stored before
+    **   its id can be seen by any other thread.
+    **
+    **   @param text The text.
+    **   @return The id, or `null` if the pool is full.
+    **/
+   Integer assign(String text) {
+      int id = next.getAndIncrement();
+      if (id >= capacity)
+         return null;
+      int page = id >>> PAGE_BITS;
+      String[] texts = pages.get(page);
+      if (texts == null) {
+         pages.compareAndSet(page, null, new String[PAGE_SIZE]);
+         texts = pages.get(page);
+      }
+      texts[id & (PAGE_SIZE - 1)] = text;
+      return id;
+   }
+}
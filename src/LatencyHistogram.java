@@ -0,0 +1,149 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a histogram of latencies, from which percentiles
+ ** such as the p50 and p99 can be read.
+ **
+ ** Values are counted in buckets whose width grows with their value, 16 to
+ ** each power of two, so that the histogram takes a fixed 8KB however many
+ ** values are recorded and any percentile is accurate to within about 6%.
+ ** Recording is a single atomic increment, so any number of threads can
+ ** record into one histogram.
+ **/
+
+import java.util.concurrent.atomic.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class LatencyHistogram {
+   static final int SUB_BUCKETS = 16;
+   static final int SUB_BITS = 4;
+   
+   AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+   AtomicLong max = new AtomicLong();
+   
+   /**
+    **   Records a value.
+    **
+    **   @param value The value, e.g. a latency in nanoseconds.
+    **/
+   public void record(long value) {
+      if (value < 0)
+         value = 0;
+      counts.incrementAndGet(bucket(value));
+      long current;
+      while (value > (current = max.get()) && !max.compareAndSet(current, value));
+   }
+   
+   /**
+    **   Returns the number of values recorded.
+    **
+    **   @return The count.
+    **/
+   public long count() {
+      long count = 0;
+      for (int i = 0; i < counts.length(); i++)
+         count += counts.get(i);
+      return count;
+   }
+   
+   /**
+    **   Returns the largest value recorded.
+    **
+    **   @return The maximum, or 0 if nothing has been recorded.
+    **/
+   public long max() {
+      return max.get();
+   }
+   
+   /**
+    **   Returns a percentile of the values recorded, as the upper bound of
+    **   the bucket it falls in.
+    **
+    **   @param percentile The percentile, from 0 to 100.
+    **   @return The value, or 0 if nothing has been recorded.
+    **/
+   public long percentile(double percentile) {
+      long[] snapshot = new long[counts.length()];
+      long count = 0;
+      for (int i = 0; i < snapshot.length; i++)
+         count += snapshot[i] = counts.get(i);
+      if (count == 0)
+         return 0;
+      long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+      long seen = 0;
+      for (int i = 0; i < snapshot.length; i++) {
+         seen += snapshot[i];
+         if (seen >= rank)
+            return Math.min(upperBound(i), max.get());
+      }
+      return max.get();
+   }
+   
+   /**
+    **   Clears the histogram.
+    **/
+   public void reset() {
+      for (int i = 0; i < counts.length(); i++)
+         counts.set(i, 0);
+      max.set(0);
+   }
+   
+   /**
+    **   Returns the bucket a value is counted in. Values below 16 have a
+    **   bucket each; above that, each power of two is split into 16.
+    **
+    **   @param value The value.
+    **   @return The bucket.
+    **/
+   static int bucket(long value) {
+      if (value < SUB_BUCKETS)
+         return (int) value;
+      int exponent = 63 - Long.numberOfLeadingZeros(value);
+      int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+      return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+   }
+   
+   /**
+    **   Returns the largest value counted in a bucket.
+    **
+    **   @param bucket The bucket.
+    **   @return The value.
+    **/
+   static long upperBound(int bucket) {
+      if (bucket < SUB_BUCKETS)
+         return bucket;
+      int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+      long sub = bucket % SUB_BUCKETS;
+      long lower = (1L << exponent) | (sub << (exponent - SUB_BITS));
+      return lower + (1L << (exponent - SUB_BITS)) - 1;
+   }
+}
@@ -0,0 +1,63 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a `TokenSource` that reads from a standard
+ ** `LexicalAnalyser`.
+ **/
+
+import java.io.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class LexicalAnalyserSource implements TokenSource {
+   LexicalAnalyser lex;
+   
+   /**
+    **   Constructor function. Creates a new Lexical Analyser using the given
+    **   filename.
+    **
+    **   @param fileName The name of the file to read tokens from.
+    **   @throws IOException in the event that the file can not be opened.
+    **/
+   public LexicalAnalyserSource(String fileName) throws IOException {
+      lex = new LexicalAnalyser(fileName);
+   }
+   
+   /**
+    **   Returns the next token from the `LexicalAnalyser`.
+    **
+    **   @return The next token.
+    **   @throws IOException in the event that the file can no longer be read.
+    **/
+   public Token getNextToken() throws IOException {
+      return lex.getNextToken();
+   }
+}
@@ -0,0 +1,239 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a generator that measures the parse on its way to
+ ** another generator, recording per-rule metrics in a `MetricsRegistry`.
+ **
+ ** The metrics are kept in plain arrays, since a generator belongs to one
+ ** thread, and added to the registry when the parse is flushed at its end.
+ ** Only one parse in every `sampleInterval` is timed, so that `nanoTime()` is
+ ** not called twice for every rule of every parse.
+ **/
+
+import java.util.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class MetricsGenerate extends AbstractGenerate {
+   AbstractGenerate generate;
+   MetricsRegistry registry;
+   
+   long[] entries = new long[Rule.count()];
+   long[] tokens = new long[Rule.count()];
+   long[] errors = new long[Rule.count()];
+   long[] sampledEntries = new long[Rule.count()];
+   long[] inclusiveNanos = new long[Rule.count()];
+   long[] exclusiveNanos = new long[Rule.count()];
+   long parses;
+   long sampledParses;
+   long totalTokens;
+   
+   // The open rules, innermost last, with when each was entered and the
+   // time spent in the rules within it, if the parse is being timed.
+   int[] open = new int[64];
+   long[] starts = new long[64];
+   long[] childNanos = new long[64];
+   int depth;
+   int maxDepth;
+   boolean sampling;
+   long count;
+   
+   /**
+    **   Constructor function.
+    **
+    **   @param generate The generator to pass the events on to.
+    **   @param registry The registry to record the metrics in.
+    **/
+   public MetricsGenerate(AbstractGenerate generate, MetricsRegistry registry) {
+      this.generate = generate;
+      this.registry = registry;
+   }
+   
+   /**
+    **   Returns the generator the events are passed on to.
+    **
+    **   @return The generator.
+    **/
+   public AbstractGenerate getGenerate() {
+      return generate;
+   }
+   
+   /**
+    **   Counts a token against the innermost open rule and passes it on.
+    **
+    **   @param token The terminal token.
+    **/
+   public void insertTerminal(Token token) {
+      totalTokens++;
+      if (depth > 0)
+         tokens[open[depth - 1]]++;
+      generate.insertTerminal(token);
+   }
+   
+   /**
+    **   Counts an entry to a rule and passes it on. A `<statement part>`
+    **   starts a new parse, abandoning any rules left open by an error in
+    **   the last one.
+    **
+    **   @param rule The rule.
+    **/
+   public void commenceNonterminal(Rule rule) {
+      if (rule == Rule.STATEMENT_PART) {
+         depth = 0;
+         parses++;
+         sampling = count++ % registry.sampleInterval == 0;
+         if (sampling)
+            sampledParses++;
+      }
+      if (depth == open.length) {
+         open = Arrays.copyOf(open, depth * 2);
+         starts = Arrays.copyOf(starts, depth * 2);
+         childNanos = Arrays.copyOf(childNanos, depth * 2);
+      }
+      open[depth] = rule.id();
+      entries[rule.id()]++;
+      if (sampling) {
+         starts[depth] = System.nanoTime();
+         childNanos[depth] = 0;
+      }
+      depth++;
+      if (depth > maxDepth)
+         maxDepth = depth;
+      generate.commenceNonterminal(rule);
+   }
+   
+   /**
+    **   Passes the end of a rule on and, if the parse is being timed, records
+    **   the time spent in it.
+    **
+    **   @param rule The rule.
+    **/
+   public void finishNonterminal(Rule rule) {
+      generate.finishNonterminal(rule);
+      if (depth == 0)
+         return;
+      depth--;
+      if (sampling) {
+         long elapsed = System.nanoTime() - starts[depth];
+         int id = open[depth];
+         sampledEntries[id]++;
+         inclusiveNanos[id] += elapsed;
+         exclusiveNanos[id] += elapsed - childNanos[depth];
+         if (depth > 0)
+            childNanos[depth - 1] += elapsed;
+      }
+   }
+   
+   /**
+    **   Resolves a non-terminal's name to its rule and records it; names that
+    **   are not rules are just passed on.
+    **
+    **   @param name The non-terminal's name.
+    **/
+   public void commenceNonterminal(String name) {
+      Rule rule = Rule.byEventName(name);
+      if (rule == null)
+         generate.commenceNonterminal(name);
+      else
+         commenceNonterminal(rule);
+   }
+   
+   /**
+    **   Resolves a non-terminal's name to its rule and records it; names that
+    **   are not rules are just passed on.
+    **
+    **   @param name The non-terminal's name.
+    **/
+   public void finishNonterminal(String name) {
+      Rule rule = Rule.byEventName(name);
+      if (rule == null)
+         generate.finishNonterminal(name);
+      else
+         finishNonterminal(rule);
+   }
+   
+   /**
+    **   Passes the success on.
+    **/
+   public void reportSuccess() {
+      generate.reportSuccess();
+   }
+   
+   /**
+    **   Counts an error against the innermost open rule and passes it on.
+    **
+    **   @param token The token the error was found at.
+    **   @param explanatoryMessage What was expected instead.
+    **   @throws CompilationException always, from the other generator.
+    **/
+   public void reportError(Token token, String explanatoryMessage) throws CompilationException {
+      if (depth > 0)
+         errors[open[depth - 1]]++;
+      generate.reportError(token, explanatoryMessage);
+   }
+   
+   /**
+    **   Adds the metrics gathered since the last flush to the registry and
+    **   flushes the other generator. The analyser flushes its generator at
+    **   the end of every parse.
+    **/
+   public void flush() {
+      registry.add(entries, tokens, errors, sampledEntries, inclusiveNanos, exclusiveNanos);
+      for (long[] counts : new long[][] { entries, tokens, errors, sampledEntries, inclusiveNanos, exclusiveNanos })
+         Arrays.fill(counts, 0);
+      MetricsRegistry.add(registry.parses, parses);
+      MetricsRegistry.add(registry.sampledParses, sampledParses);
+      MetricsRegistry.add(registry.totalTokens, totalTokens);
+      registry.maxDepth.accumulate(maxDepth);
+      parses = 0;
+      sampledParses = 0;
+      totalTokens = 0;
+      generate.flush();
+   }
+   
+   /**
+    **   Returns the sink of the other generator.
+    **
+    **   @return The sink.
+    **/
+   public OutputSink getSink() {
+      return generate.getSink();
+   }
+   
+   /**
+    **   Sets the sink of the other generator.
+    **
+    **   @param sink The sink.
+    **/
+   public void setSink(OutputSink sink) {
+      generate.setSink(sink);
+   }
+}
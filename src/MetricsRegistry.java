@@ -0,0 +1,244 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a registry of parse metrics, shared by any number of
+ ** `MetricsGenerate`s on any number of threads.
+ **
+ ** For each rule it counts the entries, the tokens directly within it and the
+ ** errors found in it, and, for a sample of the parses, the time spent in it
+ ** both inclusive and exclusive of the rules within it. The counters are
+ ** `LongAdder`s, which stripe themselves across threads, and each generator
+ ** only adds to them once per parse. The metrics can be exported as JSON or
+ ** in the Prometheus text format, either on demand or as a periodic
+ ** snapshot.
+ **/
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class MetricsRegistry {
+   LongAdder[] entries = adders();
+   LongAdder[] tokens = adders();
+   LongAdder[] errors = adders();
+   LongAdder[] sampledEntries = adders();
+   LongAdder[] inclusiveNanos = adders();
+   LongAdder[] exclusiveNanos = adders();
+   LongAdder parses = new LongAdder();
+   LongAdder sampledParses = new LongAdder();
+   LongAdder totalTokens = new LongAdder();
+   LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+   int sampleInterval;
+   ScheduledExecutorService snapshots = null;
+   
+   /**
+    **   Constructor function. Times one parse in every 16.
+    **/
+   public MetricsRegistry() {
+      this(16);
+   }
+   
+   /**
+    **   Constructor function.
+    **
+    **   @param sampleInterval How many parses there are for each one that is
+    **      timed; 1 times every parse.
+    **/
+   public MetricsRegistry(int sampleInterval) {
+      this.sampleInterval = sampleInterval;
+   }
+   
+   /**
+    **   Adds the metrics of a generator's parses to the registry. The arrays
+    **   are indexed by rule id.
+    **/
+   void add(long[] entries, long[] tokens, long[] errors, long[] sampledEntries,
+         long[] inclusiveNanos, long[] exclusiveNanos) {
+      for (int i = 0; i < Rule.count(); i++) {
+         add(this.entries[i], entries[i]);
+         add(this.tokens[i], tokens[i]);
+         add(this.errors[i], errors[i]);
+         add(this.sampledEntries[i], sampledEntries[i]);
+         add(this.inclusiveNanos[i], inclusiveNanos[i]);
+         add(this.exclusiveNanos[i], exclusiveNanos[i]);
+      }
+   }
+   
+   /**
+    **   Returns the metrics as a JSON object.
+    **
+    **   @return The JSON.
+    **/
+   public String toJson() {
+      StringBuilder json = new StringBuilder();
+      json.append("{\n");
+      json.append("  \"parses\": ").append(parses.sum()).append(",\n");
+      json.append("  \"sampledParses\": ").append(sampledParses.sum()).append(",\n");
+      json.append("  \"tokens\": ").append(totalTokens.sum()).append(",\n");
+      json.append("  \"maxDepth\": ").append(maxDepth.get()).append(",\n");
+      json.append("  \"rules\": [");
+      for (Rule rule : Rule.RULES) {
+         int i = rule.id();
+         json.append(i == 0 ? "\n" : ",\n");
+         json.append("    {\"rule\": \"").append(rule.eventName).append('"');
+         json.append(", \"entries\": ").append(entries[i].sum());
+         json.append(", \"tokens\": ").append(tokens[i].sum());
+         json.append(", \"errors\": ").append(errors[i].sum());
+         json.append(", \"sampledEntries\": ").append(sampledEntries[i].sum());
+         json.append(", \"inclusiveNanos\": ").append(inclusiveNanos[i].sum());
+         json.append(", \"exclusiveNanos\": ").append(exclusiveNanos[i].sum());
+         json.append('}');
+      }
+      json.append("\n  ]\n}\n");
+      return json.toString();
+   }
+   
+   /**
+    **   Returns the metrics in the Prometheus text exposition format. Times
+    **   are those of the sampled parses only, alongside the number of
+    **   sampled entries to scale them by.
+    **
+    **   @return The metrics.
+    **/
+   public String toPrometheus() {
+      StringBuilder text = new StringBuilder();
+      metric(text, "syntaxalyser_parses_total", "counter", "Files parsed.", parses.sum());
+      metric(text, "syntaxalyser_sampled_parses_total", "counter", "Files parsed with timing.", sampledParses.sum());
+      metric(text, "syntaxalyser_tokens_total", "counter", "Tokens parsed.", totalTokens.sum());
+      metric(text, "syntaxalyser_max_depth", "gauge", "Deepest nesting of rules seen.", maxDepth.get());
+      metric(text, "syntaxalyser_rule_entries_total", "counter", "Entries to each rule.", entries);
+      metric(text, "syntaxalyser_rule_tokens_total", "counter", "Tokens directly within each rule.", tokens);
+      metric(text, "syntaxalyser_rule_errors_total", "counter", "Errors found in each rule.", errors);
+      metric(text, "syntaxalyser_rule_sampled_entries_total", "counter", "Timed entries to each rule.", sampledEntries);
+      metric(text, "syntaxalyser_rule_inclusive_nanoseconds_total", "counter", "Time in each rule, sampled.", inclusiveNanos);
+      metric(text, "syntaxalyser_rule_exclusive_nanoseconds_total", "counter", "Time in each rule less the rules within it, sampled.", exclusiveNanos);
+      return text.toString();
+   }
+   
+   /**
+    **   Writes the metrics to a file, as Prometheus text if its name ends in
+    **   `.prom` and as JSON otherwise. The file is replaced atomically, so
+    **   that a reader never sees a partial snapshot.
+    **
+    **   @param file The file.
+    **   @throws IOException in the event that the file can not be written.
+    **/
+   public void write(Path file) throws IOException {
+      String text = file.toString().endsWith(".prom") ? toPrometheus() : toJson();
+      Path directory = file.toAbsolutePath().getParent();
+      Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+      try {
+         Files.write(temp, text.getBytes(StandardCharsets.UTF_8));
+         try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+         } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+         }
+      } finally {
+         Files.deleteIfExists(temp);
+      }
+   }
+   
+   /**
+    **   Starts writing a snapshot of the metrics to a file periodically, on a
+    **   daemon thread.
+    **
+    **   @param file The file.
+    **   @param periodMillis The time between snapshots in milliseconds.
+    **/
+   public synchronized void startSnapshots(Path file, long periodMillis) {
+      stopSnapshots();
+      snapshots = Executors.newSingleThreadScheduledExecutor(task -> {
+         Thread thread = new Thread(task, "MetricsRegistry");
+         thread.setDaemon(true);
+         return thread;
+      });
+      snapshots.scheduleAtFixedRate(() -> {
+         try {
+            write(file);
+         } catch (IOException ex) {
+            // Try again next time.
+         }
+      }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+   }
+   
+   /**
+    **   Stops writing periodic snapshots.
+    **/
+   public synchronized void stopSnapshots() {
+      if (snapshots != null) {
+         snapshots.shutdownNow();
+         snapshots = null;
+      }
+   }
+   
+   /**
+    **   Adds a value to a counter, skipping zeros to save contending for it.
+    **/
+   static void add(LongAdder adder, long value) {
+      if (value != 0)
+         adder.add(value);
+   }
+   
+   /**
+    **   Creates a counter for each rule.
+    **/
+   static LongAdder[] adders() {
+      LongAdder[] adders = new LongAdder[Rule.count()];
+      for (int i = 0; i < adders.length; i++)
+         adders[i] = new LongAdder();
+      return adders;
+   }
+   
+   /**
+    **   Appends a single-valued metric in Prometheus format.
+    **/
+   static void metric(StringBuilder text, String name, String type, String help, long value) {
+      text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+      text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+      text.append(name).append(' ').append(value).append('\n');
+   }
+   
+   /**
+    **   Appends a per-rule metric in Prometheus format.
+    **/
+   static void metric(StringBuilder text, String name, String type, String help, LongAdder[] values) {
+      text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+      text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+      for (Rule rule : Rule.RULES)
+         text.append(name).append("{rule=\"").append(rule.name().toLowerCase()).append("\"} ")
+            .append(values[rule.id()].sum()).append('\n');
+   }
+}
@@ -0,0 +1,95 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a generator that discards every event, for when
+ ** only whether a file parses, and the trace if not, is wanted.
+ **/
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class NullGenerate extends AbstractGenerate {
+   /**
+    **   Discards a terminal.
+    **
+    **   @param token The terminal token.
+    **/
+   public void insertTerminal(Token token) {
+   }
+   
+   /**
+    **   Discards the start of a non-terminal.
+    **
+    **   @param rule The non-terminal's rule.
+    **/
+   public void commenceNonterminal(Rule rule) {
+   }
+   
+   /**
+    **   Discards the end of a non-terminal.
+    **
+    **   @param rule The non-terminal's rule.
+    **/
+   public void finishNonterminal(Rule rule) {
+   }
+   
+   /**
+    **   Discards the start of a non-terminal.
+    **
+    **   @param name The non-terminal's name.
+    **/
+   public void commenceNonterminal(String name) {
+   }
+   
+   /**
+    **   Discards the end of a non-terminal.
+    **
+    **   @param name The non-terminal's name.
+    **/
+   public void finishNonterminal(String name) {
+   }
+   
+   /**
+    **   Discards the success report.
+    **/
+   public void reportSuccess() {
+   }
+   
+   /**
+    **   Reports an error, printing nothing.
+    **
+    **   @param token The token the error was found at.
+    **   @param explanatoryMessage What was expected instead.
+    **   @throws CompilationException always.
+    **/
+   public void reportError(Token token, String explanatoryMessage) throws CompilationException {
+      throw new StacklessCompilationException("expected "+explanatoryMessage+", found: '"+token.text+"'");
+   }
+}
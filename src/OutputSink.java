@@ -0,0 +1,292 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a buffered sink for the output produced by a
+ ** generator. Output is collected in a single reusable buffer and only written
+ ** out when the buffer fills or when the sink is explicitly flushed (e.g. at
+ ** the end of each file), rather than on every grammar event.
+ **/
+ 
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class OutputSink {
+   static final int DEFAULT_SIZE = 64 * 1024;
+   static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes();
+   
+   OutputStream stream;
+   FileChannel channel;
+   byte[] buffer;
+   ByteBuffer wrapped;
+   int position = 0;
+   boolean error = false;
+   
+   /**
+    **   Constructor function. Creates a new sink that writes to the given
+    **   `OutputStream`.
+    **
+    **   @param stream The `OutputStream` to write to.
+    **/
+   public OutputSink(OutputStream stream) {
+      this(stream, DEFAULT_SIZE);
+   }
+   
+   /**
+    **   Constructor function. Creates a new sink that writes to the given
+    **   `OutputStream` using a buffer of the given size.
+    **
+    **   @param stream The `OutputStream` to write to.
+    **   @param size The size of the buffer, in bytes.
+    **/
+   public OutputSink(OutputStream stream, int size) {
+      this.stream = stream;
+      this.buffer = new byte[size];
+   }
+   
+   /**
+    **   Constructor function. Creates a new sink that writes straight to the
+    **   given `FileChannel`, bypassing any stream buffering.
+    **
+    **   @param channel The `FileChannel` to write to.
+    **/
+   public OutputSink(FileChannel channel) {
+      this(channel, DEFAULT_SIZE);
+   }
+   
+   /**
+    **   Constructor function. Creates a new sink that writes straight to the
+    **   given `FileChannel` using a buffer of the given size.
+    **
+    **   @param channel The `FileChannel` to write to.
+    **   @param size The size of the buffer, in bytes.
+    **/
+   public OutputSink(FileChannel channel, int size) {
+      this.channel = channel;
+      this.buffer = new byte[size];
+      this.wrapped = ByteBuffer.wrap(buffer);
+   }
+   
+   /**
+    **   Points this sink at a new `OutputStream`, keeping its buffer so that
+    **   it can be reused from file to file. Anything still buffered is
+    **   discarded.
+    **
+    **   @param stream The `OutputStream` to write to.
+    **/
+   public void reset(OutputStream stream) {
+      this.stream = stream;
+      this.channel = null;
+      position = 0;
+      error = false;
+   }
+   
+   /**
+    **   Appends a string to the buffer. Plain ASCII is copied across directly;
+    **   anything else is encoded with the platform's default charset, as a
+    **   `PrintStream` would.
+    **
+    **   @param s The string to append.
+    **   @return This sink.
+    **/
+   public OutputSink print(String s) {
+      if (s == null)
+         s = "null";
+      int length = s.length();
+      if (buffer.length - position < length)
+         drain();
+      if (buffer.length - position < length) {
+         write(s.getBytes(Charset.defaultCharset()));
+         return this;
+      }
+      for (int i = 0; i < length; i++) {
+         char c = s.charAt(i);
+         if (c >= 0x80) {
+            write(s.getBytes(Charset.defaultCharset()));
+            return this;
+         }
+         buffer[position + i] = (byte) c;
+      }
+      position += length;
+      return this;
+   }
+   
+   /**
+    **   Appends the decimal representation of an integer to the buffer,
+    **   without creating an intermediate string.
+    **
+    **   @param n The integer to append.
+    **   @return This sink.
+    **/
+   public OutputSink print(int n) {
+      if (n < 0)
+         return print(Integer.toString(n));
+      if (buffer.length - position < 10)
+         drain();
+      int digits = 1;
+      for (int m = n; m >= 10; m /= 10)
+         digits++;
+      for (int i = position + digits - 1; i >= position; i--) {
+         buffer[i] = (byte) ('0' + n % 10);
+         n /= 10;
+      }
+      position += digits;
+      return this;
+   }
+   
+   /**
+    **   Appends a line separator to the buffer.
+    **
+    **   @return This sink.
+    **/
+   public OutputSink println() {
+      return write(LINE_SEPARATOR);
+   }
+   
+   /**
+    **   Appends raw bytes to the buffer.
+    **
+    **   @param bytes The bytes to append.
+    **   @return This sink.
+    **/
+   public OutputSink write(byte[] bytes) {
+      return write(bytes, 0, bytes.length);
+   }
+   
+   /**
+    **   Appends a range of raw bytes to the buffer. Ranges larger than the
+    **   buffer are written through directly.
+    **
+    **   @param bytes The bytes to append.
+    **   @param offset The offset of the first byte to append.
+    **   @param length The number of bytes to append.
+    **   @return This sink.
+    **/
+   public OutputSink write(byte[] bytes, int offset, int length) {
+      if (buffer.length - position < length) {
+         drain();
+         if (length > buffer.length) {
+            writeOut(bytes, offset, length);
+            return this;
+         }
+      }
+      System.arraycopy(bytes, offset, buffer, position, length);
+      position += length;
+      return this;
+   }
+   
+   /**
+    **   Appends a single raw byte to the buffer.
+    **
+    **   @param b The byte to append.
+    **   @return This sink.
+    **/
+   public OutputSink write(int b) {
+      if (position == buffer.length)
+         drain();
+      buffer[position++] = (byte) b;
+      return this;
+   }
+   
+   /**
+    **   Writes out the contents of the buffer and flushes the underlying
+    **   stream. This should be called at file boundaries, so that the output
+    **   interleaves correctly with anything else written to the same place.
+    **/
+   public void flush() {
+      drain();
+      try {
+         if (stream != null)
+            stream.flush();
+      } catch (IOException ex) {
+         error = true;
+      }
+   }
+   
+   /**
+    **   Flushes the sink and closes the underlying stream or channel.
+    **/
+   public void close() {
+      flush();
+      try {
+         if (stream != null)
+            stream.close();
+         else
+            channel.close();
+      } catch (IOException ex) {
+         error = true;
+      }
+   }
+   
+   /**
+    **   Returns whether an I/O error has ocurred whilst writing. As with
+    **   `PrintStream`, errors are recorded rather than thrown so that
+    **   generators need not declare them.
+    **
+    **   @return Whether an error has ocurred.
+    **/
+   public boolean checkError() {
+      return error;
+   }
+   
+   /**
+    **   Writes out the contents of the buffer without flushing the underlying
+    **   stream.
+    **/
+   void drain() {
+      if (position > 0) {
+         writeOut(buffer, 0, position);
+         position = 0;
+      }
+   }
+   
+   /**
+    **   Writes bytes to the underlying stream or channel.
+    **/
+   void writeOut(byte[] bytes, int offset, int length) {
+      try {
+         if (stream != null) {
+            stream.write(bytes, offset, length);
+         } else {
+            ByteBuffer bb = (bytes == buffer) ? wrapped : ByteBuffer.wrap(bytes);
+            bb.limit(offset + length).position(offset);
+            while (bb.hasRemaining())
+               channel.write(bb);
+            bb.clear();
+         }
+      } catch (IOException ex) {
+         error = true;
+      }
+   }
+}
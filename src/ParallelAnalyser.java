@@ -0,0 +1,361 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a syntax analyser for single huge files, which
+ ** parses the top-level `<statement list>` in parallel.
+ **
+ ** The whole file is lexed first, and the tokens are pre-scanned for the
+ ** `;`s that separate top-level statements, keeping track of the nesting of
+ ** `if`, `while`, `do` and `(`. The statements are grouped into chunks, each
+ ** chunk is parsed on a fork/join pool into its own `RecordingGenerate`, and
+ ** the recorded events are then replayed in source order. Each chunk must
+ ** parse successfully and end exactly at its boundary, in which case its
+ ** events are those that `SyntaxAnalyser` would have generated for it.
+ ** Otherwise, e.g. on a syntax error, the whole file is parsed sequentially
+ ** instead, so the output and diagnostics are always exactly those of
+ ** `SyntaxAnalyser`.
+ **/
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class ParallelAnalyser extends SyntaxAnalyser {
+   static final int MIN_CHUNK_TOKENS = 4096;
+   
+   ForkJoinPool pool = ForkJoinPool.commonPool();
+   int minChunkTokens = MIN_CHUNK_TOKENS;
+   
+   /**
+    **   Constructor function. Creates a new Lexical Analyser using the given
+    **   filename.
+    **
+    **   @param fileName The name of the file to syntactically analyse.
+    **   @throws IOException in the event that the file can not be opened.
+    **/
+   public ParallelAnalyser(String fileName) throws IOException {
+      super(fileName);
+   }
+   
+   /**
+    **   Constructor function. Creates an analyser with no input, for use with
+    **   `reset()`.
+    **
+    **   @param generate The generator to send the parse output to.
+    **/
+   public ParallelAnalyser(AbstractGenerate generate) {
+      super(generate);
+   }
+   
+   /**
+    **   Sets the pool to parse the chunks on. When `parse()` is called from
+    **   within a fork/join pool, e.g. by `BatchAnalyser`, that pool is used
+    **   instead.
+    **
+    **   @param pool The pool.
+    **/
+   public void setPool(ForkJoinPool pool) {
+      this.pool = pool;
+   }
+   
+   /**
+    **   Sets the fewest tokens worth parsing as a chunk of their own. Files
+    **   with fewer tokens than this are parsed sequentially.
+    **
+    **   @param minChunkTokens The number of tokens.
+    **/
+   public void setMinChunkTokens(int minChunkTokens) {
+      this.minChunkTokens = minChunkTokens;
+   }
+   
+   /**
+    **   Returns `true`, as every token of the file is read before any of
+    **   them is parsed.
+    **
+    **   @return Whether the analyser holds on to tokens.
+    **/
+   public boolean holdsTokens() {
+      return true;
+   }
+   
+   /**
+    **   Parses the file in parallel chunks where it can, and sequentially
+    **   where it can not, with the same output either way.
+    **
+    **   @param ps The `PrintStream` to print any `Compilation Exception` to.
+    **   @throws IOException in the event that the `LexicalAnalyser` can no
+    **      longer read.
+    **/
+   public void parse(PrintStream ps) throws IOException {
+      if (myGenerate == null)
+         myGenerate = new Generate();
+      TokenSource source = lex;
+      ArrayList<Token> tokens = new ArrayList<Token>();
+      IOException failure = null;
+      
+      // A file with more tokens than the token limit allows is bound to be
+      // stopped by it, so only as many are read as it takes to get there,
+      // and likewise once the deadline has passed.
+      long budget = (limits == null || limits.maxTokens > Integer.MAX_VALUE) ? Integer.MAX_VALUE : limits.maxTokens + 2;
+      boolean timed = (limits != null && limits.timeout > 0);
+      boolean complete = false;
+      try {
+         Token token;
+         do {
+            token = source.getNextToken();
+            tokens.add(token);
+            if (timed && tokens.size() % ParseLimits.CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0)
+               break;
+         } while (token.symbol != Token.eofSymbol && tokens.size() <= budget);
+         complete = (token.symbol == Token.eofSymbol);
+      } catch (IOException ex) {
+         failure = ex;
+      }
+      if (complete || failure != null)
+         source.close();
+      
+      if (complete && tokens.size() >= 2 * minChunkTokens && parseChunks(tokens))
+         return;
+      
+      // The sequential parse reads the same tokens, then any the file has
+      // left, and fails at the same point if they could not all be read.
+      IOException error = failure;
+      boolean open = !complete && failure == null;
+      lex = new TokenSource() {
+         int next = 0;
+         
+         public Token getNextToken() throws IOException {
+            if (next < tokens.size())
+               return tokens.get(next++);
+            if (error != null)
+               throw error;
+            return open ? source.getNextToken() : tokens.get(tokens.size() - 1);
+         }
+         
+         public void close() throws IOException {
+            if (open)
+               source.close();
+         }
+      };
+      super.parse(ps);
+   }
+   
+   /**
+    **   Parses the file as chunks of top-level statements on the pool, and
+    **   sends the output to the generator if every chunk parsed.
+    **
+    **   @param tokens Every token of the file, ending with the end of file.
+    **   @return Whether the file was parsed; if not, nothing has been sent to
+    **      the generator, and the file must be parsed sequentially.
+    **/
+   boolean parseChunks(ArrayList<Token> tokens) {
+      if (limits != null && tokens.size() > limits.maxTokens)
+         return false;
+      int[] bounds = chunks(tokens);
+      if (bounds == null)
+         return false;
+      
+      RecordingGenerate[] events = new RecordingGenerate[bounds.length - 1];
+      Chunks task = new Chunks(tokens, bounds, events, 0, events.length);
+      if (ForkJoinTask.inForkJoinPool())
+         task.invoke();
+      else
+         pool.invoke(task);
+      for (RecordingGenerate chunk : events)
+         if (chunk == null)
+            return false;
+      
+      // The `;`s between the chunks and the tokens around the statement
+      // list are accepted as usual, with the token source skipped past each
+      // chunk as its events are replayed. The chunks have already been
+      // checked against the limits.
+      rules.clear();
+      diagnostics.clear();
+      scope = 0;
+      nextCheck = Long.MAX_VALUE;
+      TokenListSource source = new TokenListSource(tokens, 1, tokens.size(), tokens.get(tokens.size() - 1));
+      lex = source;
+      nextToken = tokens.get(0);
+      try {
+         rules.push(Rule.STATEMENT_PART, nextToken.lineNumber);
+         commence(Rule.STATEMENT_PART);
+         acceptTerminal(Token.beginSymbol);
+         rules.push(Rule.STATEMENT_LIST, nextToken.lineNumber);
+         commence(Rule.STATEMENT_LIST);
+         for (int i = 0; i < events.length; i++) {
+            if (i > 0)
+               acceptTerminal(Token.semicolonSymbol);
+            events[i].replay(myGenerate);
+            tokenCount += bounds[i + 1] - 1 - bounds[i];
+            nextToken = tokens.get(bounds[i + 1] - 1);
+            source.next = bounds[i + 1];
+         }
+         finish(Rule.STATEMENT_LIST);
+         rules.pop();
+         acceptTerminal(Token.endSymbol);
+         finish(Rule.STATEMENT_PART);
+         rules.pop();
+         acceptTerminal(Token.eofSymbol);
+         if (subscription == null || subscription.success)
+            myGenerate.reportSuccess();
+      } catch (IOException | CompilationException ex) {
+         // The tokens around the chunks were checked when they were found.
+         throw new IllegalStateException(ex);
+      } finally {
+         myGenerate.flush();
+      }
+      return true;
+   }
+   
+   /**
+    **   Pre-scans the tokens for the `;`s that separate top-level
+    **   statements, and groups the statements between them into chunks of
+    **   at least `minChunkTokens` tokens, aiming for several chunks per
+    **   thread of the pool.
+    **
+    **   The scan only has to be right for files that parse; for any other,
+    **   some chunk fails to parse or to end at its boundary.
+    **
+    **   @param tokens Every token of the file.
+    **   @return The index of the first token of each chunk, followed by the
+    **      index after the final `end`. Chunk `i` ends just before the token
+    **      at `bounds[i + 1] - 1`: the `;` after it, or the final `end`. `null`
+    **      if there are fewer than two chunks.
+    **/
+   int[] chunks(ArrayList<Token> tokens) {
+      int size = tokens.size();
+      if (size < 3 || tokens.get(0).symbol != Token.beginSymbol || tokens.get(size - 2).symbol != Token.endSymbol)
+         return null;
+      int parallelism = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool().getParallelism() : pool.getParallelism();
+      int target = Math.max(minChunkTokens, size / (4 * parallelism));
+      
+      int[] bounds = new int[16];
+      int count = 0;
+      bounds[count++] = 1;
+      int depth = 0;
+      for (int i = 1; i < size - 2 && depth >= 0; i++) {
+         switch (tokens.get(i).symbol) {
+         case Token.ifSymbol:
+         case Token.whileSymbol:
+         case Token.doSymbol:
+         case Token.leftParenthesis:
+            depth++;
+            break;
+         case Token.endSymbol:
+            // The `if` or `loop` after an `end` closes a block rather than
+            // opening one.
+            int after = tokens.get(i + 1).symbol;
+            if (after == Token.ifSymbol || after == Token.loopSymbol)
+               i++;
+            depth--;
+            break;
+         case Token.untilSymbol:
+         case Token.rightParenthesis:
+            depth--;
+            break;
+         case Token.semicolonSymbol:
+            if (depth == 0 && i - bounds[count - 1] >= target) {
+               if (count + 1 == bounds.length)
+                  bounds = Arrays.copyOf(bounds, count * 2);
+               bounds[count++] = i + 1;
+            }
+            break;
+         }
+      }
+      if (depth != 0 || count < 2)
+         return null;
+      bounds[count++] = size - 1;
+      return Arrays.copyOf(bounds, count);
+   }
+   
+   /**
+    **   Parses a range of chunks, splitting it in half until only one is
+    **   left. The events of each chunk that parses exactly up to its boundary
+    **   are stored; those of any other are left `null`.
+    **/
+   class Chunks extends RecursiveAction {
+      ArrayList<Token> tokens;
+      int[] bounds;
+      RecordingGenerate[] events;
+      int lo;
+      int hi;
+      
+      Chunks(ArrayList<Token> tokens, int[] bounds, RecordingGenerate[] events, int lo, int hi) {
+         this.tokens = tokens;
+         this.bounds = bounds;
+         this.events = events;
+         this.lo = lo;
+         this.hi = hi;
+      }
+      
+      protected void compute() {
+         if (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new Chunks(tokens, bounds, events, lo, mid), new Chunks(tokens, bounds, events, mid, hi));
+            return;
+         }
+         int start = bounds[lo];
+         int end = bounds[lo + 1] - 1;
+         Token terminator = tokens.get(end);
+         RecordingGenerate recording = new RecordingGenerate();
+         SyntaxAnalyser analyser = new SyntaxAnalyser(recording);
+         analyser.setSubscription(subscription);
+         analyser.setExpressionMode(expressions);
+         analyser.setLimits(limits);
+         try {
+            // The chunk is parsed as the rest of the statement list, ending
+            // at the terminator: the real next token, so that any decision
+            // made on it is the same as in a sequential parse. The state that
+            // limits and subscriptions depend on is set up to match as well.
+            analyser.startFragment(new TokenListSource(tokens, start, end, terminator));
+            analyser.rules.push(Rule.STATEMENT_PART, tokens.get(0).lineNumber);
+            analyser.rules.push(Rule.STATEMENT_LIST, tokens.get(1).lineNumber);
+            analyser.tokenCount = start;
+            analyser.deadline = deadline;
+            analyser.nextCheck = (limits == null) ? Long.MAX_VALUE : start;
+            if (subscription != null)
+               analyser.scope = (subscription.rules[Rule.STATEMENT_PART.id()] ? 1 : 0)
+                  + (subscription.rules[Rule.STATEMENT_LIST.id()] ? 1 : 0);
+            analyser._statement_();
+            while (analyser.nextToken != terminator && analyser.nextToken.symbol == Token.semicolonSymbol) {
+               analyser.acceptTerminal(Token.semicolonSymbol);
+               analyser._statement_();
+            }
+         } catch (IOException | CompilationException ex) {
+            return;
+         }
+         if (analyser.nextToken == terminator && analyser.getTokenCount() == end)
+            events[lo] = recording;
+      }
+   }
+}
@@ -0,0 +1,313 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents an on-disk cache of parse results, keyed by the
+ ** content of the source file, so that a file which has not changed since the
+ ** last run need not be lexed or parsed again.
+ **/
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class ParseCache {
+   static final int MAGIC = 0x53434331;
+   /**
+    **   How old an entry's modification time must be before a hit updates
+    **   it. Eviction only needs to know roughly when an entry was last used,
+    **   so a run that hits the same entries again does not write to them.
+    **/
+   static final long TOUCH_INTERVAL = 60 * 60 * 1000;
+   
+   Path directory;
+   long maxBytes;
+   AtomicLong bytes = new AtomicLong();
+   AtomicLong hits = new AtomicLong();
+   AtomicLong misses = new AtomicLong();
+   Object evicting = new Object();
+   
+   /**
+    **   Holds the cached result of parsing one file: whether it succeeded,
+    **   the `Compilation Exception` trace if not, and optionally the events
+    **   the generator produced.
+    **/
+   public static class Entry {
+      boolean success;
+      long tokens;
+      byte[] trace;
+      byte[] events;
+      
+      /**
+       **   Constructor function.
+       **
+       **   @param success Whether the parse succeeded.
+       **   @param tokens The number of tokens parsed.
+       **   @param trace The `Compilation Exception` trace, empty on success.
+       **   @param events The generator output, or `null` if it is not to be
+       **      cached.
+       **/
+      public Entry(boolean success, long tokens, byte[] trace, byte[] events) {
+         this.success = success;
+         this.tokens = tokens;
+         this.trace = trace;
+         this.events = events;
+      }
+   }
+   
+   /**
+    **   Constructor function. Opens the cache in the given directory,
+    **   creating it if need be.
+    **
+    **   @param directory The directory to hold the cache.
+    **   @param maxBytes The size beyond which the least recently used
+    **      entries are evicted.
+    **   @throws IOException in the event that the directory can not be
+    **      created or read.
+    **/
+   public ParseCache(Path directory, long maxBytes) throws IOException {
+      this.directory = directory;
+      this.maxBytes = maxBytes;
+      Files.createDirectories(directory);
+      try (Stream<Path> paths = Files.walk(directory)) {
+         bytes.set(paths.filter(Files::isRegularFile).mapToLong(ParseCache::size).sum());
+      }
+   }
+   
+   /**
+    **   Computes the key for a source file: a SHA-256 hash of its content,
+    **   the analyser's version and anything else that affects the output.
+    **
+    **   @param content The content of the source file.
+    **   @param variant The options that affect the output, e.g. the output
+    **      format.
+    **   @return The key, as hex digits.
+    **/
+   public static String key(byte[] content, String variant) {
+      MessageDigest digest;
+      try {
+         digest = MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException ex) {
+         throw new IllegalStateException(ex);
+      }
+      digest.update((SyntaxAnalyser.VERSION+"\n"+variant+"\n").getBytes(StandardCharsets.UTF_8));
+      byte[] hash = digest.digest(content);
+      StringBuilder key = new StringBuilder(hash.length * 2);
+      for (byte b : hash)
+         key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      return key.toString();
+   }
+   
+   /**
+    **   Looks up a cached result. Any entry that can not be read, e.g.
+    **   because it was evicted by another thread, is treated as a miss. A hit
+    **   marks the entry as used, unless it was marked within the last
+    **   `TOUCH_INTERVAL`.
+    **
+    **   @param key The key of the source file.
+    **   @param needEvents Whether only an entry with its events will do.
+    **   @return The cached result, or `null` if there is none.
+    **/
+   public Entry get(String key, boolean needEvents) {
+      Path path = path(key);
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+         if (in.readInt() != MAGIC) {
+            misses.incrementAndGet();
+            return null;
+         }
+         boolean success = in.readBoolean();
+         long tokens = in.readLong();
+         byte[] trace = new byte[in.readInt()];
+         in.readFully(trace);
+         byte[] events = null;
+         if (in.readBoolean()) {
+            events = new byte[in.readInt()];
+            in.readFully(events);
+         } else if (needEvents) {
+            misses.incrementAndGet();
+            return null;
+         }
+         long now = System.currentTimeMillis();
+         if (now - modified(path) > TOUCH_INTERVAL)
+            Files.setLastModifiedTime(path, FileTime.fromMillis(now));
+         hits.incrementAndGet();
+         return new Entry(success, tokens, trace, events);
+      } catch (IOException ex) {
+         misses.incrementAndGet();
+         return null;
+      }
+   }
+   
+   /**
+    **   Stores a result. The entry is written to a temporary file and then
+    **   moved into place, so that concurrent readers never see a partial
+    **   entry. Failing to store an entry is not an error; the file will just
+    **   be parsed again next time.
+    **
+    **   @param key The key of the source file.
+    **   @param entry The result to store.
+    **/
+   public void put(String key, Entry entry) {
+      Path path = path(key);
+      Path temp = null;
+      try {
+         Files.createDirectories(path.getParent());
+         temp = Files.createTempFile(path.getParent(), key, ".tmp");
+         try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeBoolean(entry.success);
+            out.writeLong(entry.tokens);
+            out.writeInt(entry.trace.length);
+            out.write(entry.trace);
+            out.writeBoolean(entry.events != null);
+            if (entry.events != null) {
+               out.writeInt(entry.events.length);
+               out.write(entry.events);
+            }
+         }
+         long added = Files.size(temp) - size(path);
+         try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+         } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+         }
+         temp = null;
+         if (bytes.addAndGet(added) > maxBytes)
+            evict();
+      } catch (IOException ex) {
+         // Leave the file uncached.
+      } finally {
+         if (temp != null)
+            try {
+               Files.deleteIfExists(temp);
+            } catch (IOException ex) {
+               // Nothing more can be done.
+            }
+      }
+   }
+   
+   /**
+    **   Evicts the least recently used entries until the cache is back below
+    **   three quarters of its maximum size. Only one thread evicts at a time;
+    **   the others carry on storing entries.
+    **/
+   void evict() {
+      synchronized (evicting) {
+         if (bytes.get() <= maxBytes)
+            return;
+         List<Path> paths;
+         try (Stream<Path> walk = Files.walk(directory)) {
+            paths = walk.filter(p -> Files.isRegularFile(p) && !p.toString().endsWith(".tmp"))
+                        .collect(Collectors.toList());
+         } catch (IOException | UncheckedIOException ex) {
+            return;
+         }
+         Map<Path, Long> times = new HashMap<Path, Long>();
+         for (Path p : paths)
+            times.put(p, modified(p));
+         paths.sort(Comparator.comparing(times::get));
+         for (Path p : paths) {
+            if (bytes.get() <= maxBytes / 4 * 3)
+               break;
+            long size = size(p);
+            try {
+               if (Files.deleteIfExists(p))
+                  bytes.addAndGet(-size);
+            } catch (IOException ex) {
+               // Still in use; try the next one.
+            }
+         }
+      }
+   }
+   
+   /**
+    **   Returns the path of the entry for a key. Entries are spread across
+    **   subdirectories by the first two digits of the key.
+    **
+    **   @param key The key.
+    **   @return The path.
+    **/
+   Path path(String key) {
+      return directory.resolve(key.substring(0, 2)).resolve(key);
+   }
+   
+   /**
+    **   Returns the number of lookups served from the cache.
+    **
+    **   @return The number of hits.
+    **/
+   public long getHits() {
+      return hits.get();
+   }
+   
+   /**
+    **   Returns the number of lookups not served from the cache.
+    **
+    **   @return The number of misses.
+    **/
+   public long getMisses() {
+      return misses.get();
+   }
+   
+   /**
+    **   Returns the size of a file, or 0 if it does not exist.
+    **
+    **   @param path The file.
+    **   @return The size in bytes.
+    **/
+   static long size(Path path) {
+      try {
+         return Files.size(path);
+      } catch (IOException ex) {
+         return 0;
+      }
+   }
+   
+   /**
+    **   Returns when a file was last modified, or 0 if it does not exist.
+    **
+    **   @param path The file.
+    **   @return The time in milliseconds.
+    **/
+   static long modified(Path path) {
+      try {
+         return Files.getLastModifiedTime(path).toMillis();
+      } catch (IOException ex) {
+         return 0;
+      }
+   }
+}
@@ -0,0 +1,229 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a client of a `ParseServer`.
+ **/
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class ParseClient implements Closeable {
+   Socket socket;
+   InputStream in;
+   OutputStream out;
+   
+   /**
+    **   Holds the server's answer to a parse request.
+    **/
+   public static class Response {
+      public boolean success;
+      public byte[] output;
+      public byte[] trace;
+   }
+   
+   /**
+    **   Constructor function. Connects to a server on the loopback interface.
+    **
+    **   @param port The server's port.
+    **   @throws IOException in the event that the server can not be reached.
+    **/
+   public ParseClient(int port) throws IOException {
+      socket = new Socket(InetAddress.getLoopbackAddress(), port);
+      socket.setTcpNoDelay(true);
+      in = new BufferedInputStream(socket.getInputStream());
+      out = new BufferedOutputStream(socket.getOutputStream());
+   }
+   
+   /**
+    **   Asks the server to parse a file.
+    **
+    **   @param fileName The name of the file, as the server sees it.
+    **   @return The server's answer.
+    **   @throws IOException in the event that the server can not be reached.
+    **/
+   public Response parseFile(String fileName) throws IOException {
+      out.write(("FILE "+fileName+"\n").getBytes(StandardCharsets.UTF_8));
+      out.flush();
+      return response();
+   }
+   
+   /**
+    **   Asks the server to parse source text.
+    **
+    **   @param source The source text.
+    **   @return The server's answer.
+    **   @throws IOException in the event that the server can not be reached.
+    **/
+   public Response parseText(byte[] source) throws IOException {
+      out.write(("TEXT "+source.length+"\n").getBytes(StandardCharsets.US_ASCII));
+      out.write(source);
+      out.flush();
+      return response();
+   }
+   
+   /**
+    **   Asks the server for its latency statistics.
+    **
+    **   @return The statistics, as `STATS <parses> <p50> <p99> <max>` in
+    **      microseconds.
+    **   @throws IOException in the event that the server can not be reached.
+    **/
+   public String stats() throws IOException {
+      ParseServer.reply(out, "STATS");
+      return ParseServer.readLine(in);
+   }
+   
+   /**
+    **   Asks the server to clear its latency statistics.
+    **
+    **   @throws IOException in the event that the server can not be reached.
+    **/
+   public void reset() throws IOException {
+      ParseServer.reply(out, "RESET");
+      ParseServer.readLine(in);
+   }
+   
+   /**
+    **   Closes the connection.
+    **
+    **   @throws IOException in the event that the socket can not be closed.
+    **/
+   public void close() throws IOException {
+      try {
+         ParseServer.reply(out, "QUIT");
+      } finally {
+         socket.close();
+      }
+   }
+   
+   /**
+    **   Reads the server's answer to a parse request.
+    **/
+   Response response() throws IOException {
+      String line = ParseServer.readLine(in);
+      if (line == null)
+         throw new EOFException("server closed the connection");
+      String[] parts = line.split(" ");
+      if (parts.length != 3 || !(parts[0].equals("SUCCESS") || parts[0].equals("FAILURE")))
+         throw new IOException("unexpected response: "+line);
+      Response response = new Response();
+      response.success = parts[0].equals("SUCCESS");
+      response.output = ParseServer.readFully(in, Integer.parseInt(parts[1]));
+      response.trace = ParseServer.readFully(in, Integer.parseInt(parts[2]));
+      return response;
+   }
+   
+   /**
+    **   Runs the client. Usage:
+    **
+    **      java ParseClient -p port [-c connections] [-n repeats] [-q] files...
+    **
+    **   Each file is parsed by the server and its output and trace printed,
+    **   as `Compile` would. With `-c` and `-n`, the files are parsed
+    **   `repeats` times over each of `connections` concurrent connections,
+    **   and `-q` prints only the latencies seen by the client and the
+    **   server, for load testing.
+    **
+    **   @param args The command-line arguments.
+    **   @throws Exception in the event that the server can not be reached.
+    **/
+   public static void main(String[] args) throws Exception {
+      int port = -1;
+      int connections = 1;
+      int repeats = 1;
+      boolean quiet = false;
+      List<String> fileNames = new ArrayList<String>();
+      for (int i = 0; i < args.length; i++) {
+         switch (args[i]) {
+         case "-p":
+            port = Integer.parseInt(args[++i]);
+            break;
+         case "-c":
+            connections = Integer.parseInt(args[++i]);
+            break;
+         case "-n":
+            repeats = Integer.parseInt(args[++i]);
+            break;
+         case "-q":
+            quiet = true;
+            break;
+         default:
+            fileNames.add(new File(args[i]).getAbsolutePath());
+         }
+      }
+      if (port < 0)
+         throw new IllegalArgumentException("no port given");
+      
+      final int serverPort = port;
+      final int times = repeats;
+      final boolean print = !quiet;
+      LatencyHistogram latencies = new LatencyHistogram();
+      ExecutorService pool = Executors.newFixedThreadPool(connections);
+      List<Future<?>> clients = new ArrayList<Future<?>>();
+      long start = System.nanoTime();
+      for (int c = 0; c < connections; c++) {
+         clients.add(pool.submit(() -> {
+            try (ParseClient client = new ParseClient(serverPort)) {
+               for (int n = 0; n < times; n++) {
+                  for (String fileName : fileNames) {
+                     long sent = System.nanoTime();
+                     Response response = client.parseFile(fileName);
+                     latencies.record(System.nanoTime() - sent);
+                     if (print) {
+                        synchronized (System.out) {
+                           System.out.write(response.output);
+                           System.out.write(response.trace);
+                           System.out.flush();
+                        }
+                     }
+                  }
+               }
+            }
+            return null;
+         }));
+      }
+      for (Future<?> client : clients)
+         client.get();
+      pool.shutdown();
+      double seconds = (System.nanoTime() - start) / 1e9;
+      try (ParseClient client = new ParseClient(port)) {
+         System.err.printf("rggCLIENT %d parses in %.3fs (%.1f/s), p50 %dus, p99 %dus, max %dus%n",
+            latencies.count(), seconds, latencies.count() / seconds, latencies.percentile(50) / 1000,
+            latencies.percentile(99) / 1000, latencies.max() / 1000);
+         System.err.println("rggSERVER "+client.stats());
+      }
+   }
+}
@@ -0,0 +1,112 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents the resources that parsing a single file may use,
+ ** so that one huge, deeply nested or adversarial file can not hold up a
+ ** worker for long or overflow its stack. A parse that exceeds a limit stops
+ ** with a `ResourceLimitException`, which is reported as a `Resource Limit
+ ** Exceeded` diagnostic rather than as a `Compilation Exception`.
+ **
+ ** Limits are set by chaining, e.g.
+ **
+ **    new ParseLimits().tokens(1000000).depth(5000).timeout(250)
+ **
+ ** and anything not set is unlimited.
+ **/
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class ParseLimits {
+   static final int CHECK_INTERVAL = 1024;
+   
+   long maxTokens = Long.MAX_VALUE;
+   int maxDepth = Integer.MAX_VALUE;
+   long timeout = 0;
+   int checkInterval = CHECK_INTERVAL;
+   
+   /**
+    **   Limits the number of tokens that may be accepted.
+    **
+    **   @param maxTokens The most tokens.
+    **   @return These limits.
+    **/
+   public ParseLimits tokens(long maxTokens) {
+      this.maxTokens = maxTokens;
+      return this;
+   }
+   
+   /**
+    **   Limits how deeply non-terminals may be nested.
+    **
+    **   @param maxDepth The most non-terminals open at once, counting the
+    **      `<statement part>`.
+    **   @return These limits.
+    **/
+   public ParseLimits depth(int maxDepth) {
+      this.maxDepth = maxDepth;
+      return this;
+   }
+   
+   /**
+    **   Limits how long a file may take to parse, from when the analyser is
+    **   pointed at it.
+    **
+    **   @param timeout The most milliseconds, or 0 for no limit.
+    **   @return These limits.
+    **/
+   public ParseLimits timeout(long timeout) {
+      this.timeout = timeout;
+      return this;
+   }
+   
+   /**
+    **   Sets how often the deadline is checked. Reading the clock costs far
+    **   more than accepting a token, so it is only read once in this many.
+    **
+    **   @param checkInterval The number of tokens between checks.
+    **   @return These limits.
+    **/
+   public ParseLimits checkEvery(int checkInterval) {
+      this.checkInterval = checkInterval;
+      return this;
+   }
+   
+   /**
+    **   Returns a description of the token and depth limits, which are the
+    **   ones that decide the output for a given file. Results cut short by
+    **   the timeout depend on the machine, and are not cached.
+    **
+    **   @return The description.
+    **/
+   public String toString() {
+      return "tokens="+maxTokens+" depth="+maxDepth;
+   }
+}
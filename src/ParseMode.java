@@ -0,0 +1,122 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This enum represents the ways in which a file can be parsed. All of them
+ ** emit the same generator events and errors.
+ **/
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public enum ParseMode {
+   /**
+    **   Recursive descent, with one method per non-terminal. Nesting depth is
+    **   limited by the size of the thread's stack.
+    **/
+   RECURSIVE,
+   /**
+    **   Table-driven, with an explicit stack on the heap. Nesting depth is
+    **   only limited by the heap, so deeply nested or machine-generated input
+    **   can be parsed on threads with the default stack size.
+    **/
+   ITERATIVE,
+   /**
+    **   Recursive descent, with the top-level statements of large files
+    **   split into chunks and parsed in parallel (see `ParallelAnalyser`).
+    **/
+   PARALLEL;
+   
+   /**
+    **   Creates an analyser for this mode with no input, for use with
+    **   `reset()`.
+    **
+    **   @param generate The generator to send the parse output to.
+    **   @return The analyser.
+    **/
+   public SyntaxAnalyser newAnalyser(AbstractGenerate generate) {
+      switch (this) {
+      case ITERATIVE:
+         return new TableDrivenAnalyser(generate);
+      case PARALLEL:
+         return new ParallelAnalyser(generate);
+      default:
+         return new SyntaxAnalyser(generate);
+      }
+   }
+   
+   /**
+    **   Creates an analyser for this mode with no input, as above, that
+    **   recovers from syntax errors and parses expressions as given.
+    **
+    **   @param generate The generator to send the parse output to.
+    **   @param recovery Whether to recover from syntax errors.
+    **   @param expressions The expression mode.
+    **   @return The analyser.
+    **   @throws IllegalArgumentException if this mode can not parse with
+    **      them (see `check()`).
+    **/
+   public SyntaxAnalyser newAnalyser(AbstractGenerate generate, boolean recovery, ExpressionMode expressions) {
+      check(recovery, expressions);
+      SyntaxAnalyser analyser = newAnalyser(generate);
+      analyser.setRecovery(recovery);
+      analyser.setExpressionMode(expressions);
+      return analyser;
+   }
+   
+   /**
+    **   Checks that this mode can parse with the given options, so that a
+    **   driver can reject an unsupported combination as a usage error before
+    **   it builds any analysers. The table-driven analyser has neither error
+    **   recovery nor the chained expression modes.
+    **
+    **   @param recovery Whether to recover from syntax errors.
+    **   @param expressions The expression mode.
+    **   @throws IllegalArgumentException if this mode can not parse with
+    **      them.
+    **/
+   public void check(boolean recovery, ExpressionMode expressions) {
+      if (this != ITERATIVE)
+         return;
+      if (recovery)
+         throw new IllegalArgumentException("error recovery (-e) needs the recursive or parallel mode");
+      if (expressions != ExpressionMode.GRAMMAR)
+         throw new IllegalArgumentException("expression mode "+expressions+" (-x) needs the recursive or parallel mode");
+   }
+   
+   /**
+    **   Looks up a mode by name, ignoring case.
+    **
+    **   @param name The name of the mode.
+    **   @return The mode.
+    **/
+   public static ParseMode forName(String name) {
+      return valueOf(name.toUpperCase());
+   }
+}
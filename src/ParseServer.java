@@ -0,0 +1,387 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a long-running parse server, which keeps warmed-up
+ ** analysers resident so that each parse costs only the parse itself rather
+ ** than the start-up and warm-up of a new JVM.
+ **
+ ** The server listens on the loopback interface only. Each connection sends
+ ** requests, one at a time, as lines of ASCII:
+ **
+ **    FILE <path>       parses the file at the path, as read by the server
+ **    TEXT <length>     parses the source text in the next <length> bytes
+ **    STATS             reports the number of parses and their latency
+ **    RESET             clears the latency statistics
+ **    QUIT              closes the connection
+ **
+ ** A parse is answered with `SUCCESS` or `FAILURE`, the lengths of the `rgg*`
+ ** output and of the `Compilation Exception` trace, and then those bytes:
+ **
+ **    SUCCESS <output length> <trace length>\n<output><trace>
+ **
+ ** `STATS` is answered with `STATS <parses> <p50> <p99> <max>`, in
+ ** microseconds, and a malformed request with `ERROR <message>`. Source text
+ ** is scanned by a `ByteBufferLexicalAnalyser`, and files by a
+ ** `LexicalAnalyser` unless the server was started with `-m`.
+ **/
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class ParseServer {
+   static final int MAX_TEXT = 64 << 20;
+   
+   ServerSocket server;
+   int threads;
+   ExecutorService handlers;
+   ThreadLocal<BatchAnalyser.Worker> workers;
+   boolean mapped = false;
+   ExpressionMode expressions = ExpressionMode.GRAMMAR;
+   ParseLimits limits = null;
+   LatencyHistogram latencies = new LatencyHistogram();
+   
+   /**
+    **   Constructor function. Binds the server to a port on the loopback
+    **   interface. The analysers are created on the handler threads when
+    **   they are first needed, i.e. by `warmUp()`, with the settings made by
+    **   then.
+    **
+    **   @param port The port, or 0 for any free port.
+    **   @param threads The number of connections to serve at once.
+    **   @param mode How to parse files.
+    **   @param recovery Whether to recover from syntax errors.
+    **   @throws IOException in the event that the port can not be bound.
+    **/
+   public ParseServer(int port, int threads, ParseMode mode, boolean recovery) throws IOException {
+      server = new ServerSocket(port, 256, InetAddress.getLoopbackAddress());
+      this.threads = threads;
+      handlers = Executors.newFixedThreadPool(threads);
+      workers = ThreadLocal.withInitial(() -> new BatchAnalyser.Worker(false, false, mode, recovery, expressions, limits, null));
+   }
+   
+   /**
+    **   Sets whether files should be memory-mapped and scanned in place.
+    **
+    **   @param mapped Whether to memory-map the files.
+    **/
+   public void setMapped(boolean mapped) {
+      this.mapped = mapped;
+   }
+   
+   /**
+    **   Sets the `ExpressionMode` the analysers parse expressions with.
+    **
+    **   @param expressions The expression mode.
+    **/
+   public void setExpressionMode(ExpressionMode expressions) {
+      this.expressions = expressions;
+   }
+   
+   /**
+    **   Sets the limits that stop any parse that takes too many tokens, too
+    **   deep a nesting or too long.
+    **
+    **   @param limits The limits, or `null` for none.
+    **/
+   public void setLimits(ParseLimits limits) {
+      this.limits = limits;
+   }
+   
+   /**
+    **   Returns the port the server is listening on.
+    **
+    **   @return The port.
+    **/
+   public int getPort() {
+      return server.getLocalPort();
+   }
+   
+   /**
+    **   Returns the latencies of the parses served so far.
+    **
+    **   @return The latencies, in nanoseconds.
+    **/
+   public LatencyHistogram getLatencies() {
+      return latencies;
+   }
+   
+   /**
+    **   Warms the analysers up by parsing generated programs, so that the
+    **   first requests are served by compiled code. The programs are shared
+    **   out between every handler thread, each parsing them with its own
+    **   analyser, which is created and its buffers grown on the thread that
+    **   will serve with it. Each thread holds on to its task until every
+    **   thread has taken one, so that no thread is left out.
+    **
+    **   @param iterations The number of programs to parse.
+    **   @throws IOException in the event that the warm-up fails or is
+    **      interrupted.
+    **/
+   public void warmUp(int iterations) throws IOException {
+      CountDownLatch started = new CountDownLatch(threads);
+      List<Future<Void>> tasks = new ArrayList<Future<Void>>(threads);
+      for (int t = 0; t < threads; t++) {
+         int first = t;
+         tasks.add(handlers.submit(() -> {
+            BatchAnalyser.Worker worker = workers.get();
+            for (int i = first; i < iterations; i += threads) {
+               StringWriter program = new StringWriter();
+               new ProgramGenerator(i, 20, 4, i % 4 == 0 ? 0.1 : 0).write(program);
+               byte[] source = program.toString().getBytes(StandardCharsets.ISO_8859_1);
+               BatchAnalyser.analyse(worker, "warm-up", () -> BatchAnalyser.reuseTokens(new ByteBufferLexicalAnalyser(ByteBuffer.wrap(source)), worker.analyser));
+            }
+            started.countDown();
+            started.await();
+            return null;
+         }));
+      }
+      try {
+         for (Future<Void> task : tasks)
+            task.get();
+      } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("warm-up interrupted");
+      } catch (ExecutionException ex) {
+         throw new IOException("warm-up failed", ex.getCause());
+      }
+   }
+   
+   /**
+    **   Accepts connections until the server is closed, serving each on a
+    **   handler thread.
+    **/
+   public void serve() {
+      while (!server.isClosed()) {
+         try {
+            Socket socket = server.accept();
+            handlers.execute(() -> handle(socket));
+         } catch (IOException ex) {
+            // The server has been closed, or the connection was dropped.
+         } catch (RejectedExecutionException ex) {
+            break;
+         }
+      }
+   }
+   
+   /**
+    **   Stops accepting connections and closes the server.
+    **
+    **   @throws IOException in the event that the socket can not be closed.
+    **/
+   public void close() throws IOException {
+      server.close();
+      handlers.shutdown();
+   }
+   
+   /**
+    **   Serves the requests on a connection until the client quits or
+    **   disconnects.
+    **
+    **   @param socket The connection.
+    **/
+   void handle(Socket socket) {
+      try (Socket connection = socket) {
+         connection.setTcpNoDelay(true);
+         InputStream in = new BufferedInputStream(connection.getInputStream());
+         OutputStream out = new BufferedOutputStream(connection.getOutputStream());
+         BatchAnalyser.Worker worker = workers.get();
+         String line;
+         while ((line = readLine(in)) != null) {
+            long start = System.nanoTime();
+            BatchAnalyser.Result result;
+            if (line.startsWith("FILE ")) {
+               String fileName = line.substring(5);
+               result = BatchAnalyser.analyse(worker, fileName, mapped, false);
+            } else if (line.startsWith("TEXT ")) {
+               int length;
+               try {
+                  length = Integer.parseInt(line.substring(5).trim());
+               } catch (NumberFormatException ex) {
+                  length = -1;
+               }
+               if (length < 0 || length > MAX_TEXT) {
+                  reply(out, "ERROR bad length "+line.substring(5));
+                  break;
+               }
+               byte[] source = readFully(in, length);
+               result = BatchAnalyser.analyse(worker, "text", () -> BatchAnalyser.reuseTokens(new ByteBufferLexicalAnalyser(ByteBuffer.wrap(source)), worker.analyser));
+            } else if (line.equals("STATS")) {
+               reply(out, "STATS "+latencies.count()+" "+latencies.percentile(50) / 1000+" "
+                  +latencies.percentile(99) / 1000+" "+latencies.max() / 1000);
+               continue;
+            } else if (line.equals("RESET")) {
+               latencies.reset();
+               reply(out, "RESET");
+               continue;
+            } else if (line.equals("QUIT")) {
+               break;
+            } else {
+               reply(out, "ERROR unknown request "+line);
+               continue;
+            }
+            String header = (result.trace.length == 0 ? "SUCCESS " : "FAILURE ")
+               +result.events.length+" "+result.trace.length+"\n";
+            out.write(header.getBytes(StandardCharsets.US_ASCII));
+            out.write(result.events);
+            out.write(result.trace);
+            out.flush();
+            latencies.record(System.nanoTime() - start);
+         }
+      } catch (IOException ex) {
+         // The client went away; nothing more to do for it.
+      }
+   }
+   
+   /**
+    **   Writes a one-line reply.
+    **/
+   static void reply(OutputStream out, String line) throws IOException {
+      out.write((line+"\n").getBytes(StandardCharsets.US_ASCII));
+      out.flush();
+   }
+   
+   /**
+    **   Reads a line of ASCII, without its line terminator.
+    **
+    **   @param in The stream to read from.
+    **   @return The line, or `null` at the end of the stream.
+    **   @throws IOException in the event that the stream can not be read.
+    **/
+   static String readLine(InputStream in) throws IOException {
+      StringBuilder line = new StringBuilder();
+      int c;
+      while ((c = in.read()) != '\n') {
+         if (c < 0)
+            return line.length() == 0 ? null : line.toString();
+         if (c != '\r')
+            line.append((char) c);
+      }
+      return line.toString();
+   }
+   
+   /**
+    **   Reads exactly the given number of bytes.
+    **
+    **   @param in The stream to read from.
+    **   @param length The number of bytes.
+    **   @return The bytes.
+    **   @throws IOException in the event that the stream ends first.
+    **/
+   static byte[] readFully(InputStream in, int length) throws IOException {
+      byte[] bytes = new byte[length];
+      int read = 0;
+      while (read < length) {
+         int n = in.read(bytes, read, length - read);
+         if (n < 0)
+            throw new EOFException("expected "+length+" bytes, got "+read);
+         read += n;
+      }
+      return bytes;
+   }
+   
+   /**
+    **   Runs the server. Usage:
+    **
+    **      java ParseServer [-p port] [-j threads] [-t mode] [-e] [-x expressions] [-m] [-n tokens] [-d depth] [-l milliseconds] [-w warm-up]
+    **
+    **   where `-p` is the port to listen on (any free one by default), `-j`
+    **   the number of connections to serve at once, `-t`, `-e`, `-x`, `-m`,
+    **   `-n` and `-d` are as for `BatchAnalyser`, `-l` stops any parse that
+    **   takes more than the given number of milliseconds, as `-w` does for
+    **   `BatchAnalyser`, and `-w` is the number of programs to parse to warm
+    **   up before listening, shared out between the handler threads. The port
+    **   is printed once the server is ready.
+    **
+    **   @param args The command-line arguments.
+    **   @throws IOException in the event that the port can not be bound.
+    **/
+   public static void main(String[] args) throws IOException {
+      int port = 0;
+      int threads = Runtime.getRuntime().availableProcessors() * 4;
+      ParseMode mode = ParseMode.RECURSIVE;
+      boolean recovery = false;
+      ExpressionMode expressions = ExpressionMode.GRAMMAR;
+      boolean mapped = false;
+      ParseLimits limits = null;
+      int warmUp = 2000;
+      for (int i = 0; i < args.length; i++) {
+         switch (args[i]) {
+         case "-p":
+            port = Integer.parseInt(args[++i]);
+            break;
+         case "-j":
+            threads = Integer.parseInt(args[++i]);
+            break;
+         case "-t":
+            mode = ParseMode.forName(args[++i]);
+            break;
+         case "-e":
+            recovery = true;
+            break;
+         case "-x":
+            expressions = ExpressionMode.forName(args[++i]);
+            break;
+         case "-m":
+            mapped = true;
+            break;
+         case "-n":
+            limits = (limits == null ? new ParseLimits() : limits).tokens(Long.parseLong(args[++i]));
+            break;
+         case "-d":
+            limits = (limits == null ? new ParseLimits() : limits).depth(Integer.parseInt(args[++i]));
+            break;
+         case "-l":
+            limits = (limits == null ? new ParseLimits() : limits).timeout(Long.parseLong(args[++i]));
+            break;
+         case "-w":
+            warmUp = Integer.parseInt(args[++i]);
+            break;
+         default:
+            throw new IllegalArgumentException("unknown option "+args[i]);
+         }
+      }
+      mode.check(recovery, expressions);
+      ParseServer server = new ParseServer(port, threads, mode, recovery);
+      server.setMapped(mapped);
+      server.setExpressionMode(expressions);
+      server.setLimits(limits);
+      server.warmUp(warmUp);
+      System.out.println("rggLISTENING "+server.getPort());
+      System.out.flush();
+      server.serve();
+   }
+}
@@ -0,0 +1,188 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a `TokenSource` that runs another source on its own
+ ** thread, so that lexing overlaps with parsing. The lexer thread fills a
+ ** bounded single-producer/single-consumer ring of tokens which the parser
+ ** drains; when the ring is full the lexer waits for the parser to catch up.
+ ** Each side only wakes the other once it has announced that it is parked,
+ ** so that a ring that is neither full nor empty costs no system calls.
+ **/
+
+import java.io.*;
+import java.util.concurrent.locks.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class PipelinedTokenSource implements TokenSource {
+   static final int DEFAULT_CAPACITY = 1024;
+   static final int SPINS = 100;
+   
+   final TokenSource source;
+   final Token[] ring;
+   final int mask;
+   final Thread producer;
+   volatile Thread consumer;
+   
+   /** The number of tokens read by the parser; only written by the parser. */
+   volatile long head = 0;
+   /** The number of tokens written by the lexer; only written by the lexer. */
+   volatile long tail = 0;
+   volatile boolean closed = false;
+   volatile IOException failure = null;
+   /** Whether each side is parked, or about to be, waiting for the other. */
+   volatile boolean producerParked = false;
+   volatile boolean consumerParked = false;
+   Token eof = null;
+   
+   /**
+    **   Constructor function. Starts lexing the given source on a new thread
+    **   with the default ring size.
+    **
+    **   @param source The source to read tokens from.
+    **/
+   public PipelinedTokenSource(TokenSource source) {
+      this(source, DEFAULT_CAPACITY);
+   }
+   
+   /**
+    **   Constructor function. Starts lexing the given source on a new thread.
+    **
+    **   @param source The source to read tokens from.
+    **   @param capacity The maximum number of tokens to buffer, rounded up to
+    **      a power of two.
+    **/
+   public PipelinedTokenSource(TokenSource source, int capacity) {
+      int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+      this.source = source;
+      this.ring = new Token[size];
+      this.mask = size - 1;
+      this.producer = new Thread(this::produce, "Syntaxalyser lexer");
+      this.producer.setDaemon(true);
+      this.producer.start();
+   }
+   
+   /**
+    **   Runs on the lexer thread, copying tokens from the source into the ring
+    **   until the end of the input, an error or the source being closed. Any
+    **   failure of the source, checked or not, is handed to the parser as an
+    **   `IOException` rather than leaving it waiting for tokens.
+    **/
+   void produce() {
+      try {
+         long t = tail;
+         while (!closed) {
+            Token token = source.getNextToken();
+            if (token == null)
+               throw new IOException("token source returned no token");
+            if (t - head == ring.length) {
+               producerParked = true;
+               while (t - head == ring.length) {
+                  if (closed)
+                     return;
+                  LockSupport.park(this);
+               }
+               producerParked = false;
+            }
+            ring[(int) t & mask] = token;
+            tail = ++t;
+            if (consumerParked)
+               LockSupport.unpark(consumer);
+            if (token.symbol == Token.eofSymbol)
+               return;
+         }
+      } catch (Throwable ex) {
+         failure = ex instanceof IOException ? (IOException) ex : new IOException("lexer thread failed", ex);
+         LockSupport.unpark(consumer);
+      }
+   }
+   
+   /**
+    **   Takes the next token from the ring, waiting for the lexer thread if
+    **   the ring is empty.
+    **
+    **   @return The next token.
+    **   @throws IOException in the event that the lexer thread failed to read
+    **      the input.
+    **/
+   public Token getNextToken() throws IOException {
+      if (eof != null)
+         return eof;
+      long h = head;
+      if (h == tail) {
+         consumer = Thread.currentThread();
+         try {
+            for (int spins = 0; h == tail; spins++) {
+               if (failure != null && h == tail)
+                  throw failure;
+               if (closed)
+                  throw new IOException("token source closed");
+               if (spins < SPINS)
+                  Thread.yield();
+               else if (!consumerParked)
+                  // Announce first, then look again before parking, so that
+                  // a token published in between is not missed.
+                  consumerParked = true;
+               else
+                  LockSupport.park(this);
+            }
+         } finally {
+            consumerParked = false;
+         }
+      }
+      int slot = (int) h & mask;
+      Token token = ring[slot];
+      ring[slot] = null;
+      head = h + 1;
+      if (producerParked)
+         LockSupport.unpark(producer);
+      if (token.symbol == Token.eofSymbol)
+         eof = token;
+      return token;
+   }
+   
+   /**
+    **   Stops the lexer thread, e.g. once the parser has given up on the file
+    **   after a `CompilationException`, and closes the underlying source.
+    **
+    **   @throws IOException in the event that the source can not be closed.
+    **/
+   public void close() throws IOException {
+      closed = true;
+      LockSupport.unpark(producer);
+      try {
+         producer.join();
+      } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+      }
+      source.close();
+   }
+}
@@ -0,0 +1,470 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a generator of random SCC# programs, for load and
+ ** scaling tests.
+ **
+ ** Programs are generated from a seed, so that a corpus can be reproduced
+ ** exactly, and use every production of the grammar: assignments of
+ ** expressions and strings, `if` with and without `else`, `while`, `call` with
+ ** argument lists, `do`-`until`, and nested expressions and conditions. A
+ ** given fraction of the top-level statements can be broken by deleting or
+ ** replacing one of their tokens.
+ **
+ ** The programs keep to what `SyntaxAnalyser` accepts rather than to the
+ ** grammar as written: an expression is at most two factors, the last
+ ** statement of a list is never an assignment of an expression, which would
+ ** have to be followed by `;`, and a condition never compares with a string.
+ **/
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class ProgramGenerator {
+   static final String[] OPERATORS = { "+", "-", "*", "/" };
+   static final String[] CONDITIONAL_OPERATORS = { "=", "/=", "<", ">", "<=", ">=" };
+   static final String[] MISPLACED = { ":=", ")", "then", "loop", "until", ",", "else" };
+   static final int MAX_INDENT = 16;
+   static final String[] INDENTS = new String[MAX_INDENT + 1];
+   
+   static {
+      INDENTS[0] = "\n";
+      for (int i = 1; i <= MAX_INDENT; i++)
+         INDENTS[i] = INDENTS[i - 1]+"   ";
+   }
+   
+   Random random;
+   int statements;
+   int depth;
+   double errorRate;
+   double nesting = 0.3;
+   int maxListLength = 4;
+   int maxArguments = 4;
+   
+   ArrayList<String> tokens = new ArrayList<String>();
+   boolean broken;
+   
+   /**
+    **   Constructor function.
+    **
+    **   @param seed The seed to generate programs from.
+    **   @param statements The number of top-level statements in each program.
+    **   @param depth The deepest that statements and expressions may nest.
+    **   @param errorRate The fraction of top-level statements to break.
+    **/
+   public ProgramGenerator(long seed, int statements, int depth, double errorRate) {
+      this.random = new Random(seed);
+      this.statements = statements;
+      this.depth = depth;
+      this.errorRate = errorRate;
+   }
+   
+   /**
+    **   Sets how likely a statement or expression is to nest another inside
+    **   it, while the depth allows.
+    **
+    **   @param nesting The probability, from 0 to 1.
+    **/
+   public void setNesting(double nesting) {
+      this.nesting = nesting;
+   }
+   
+   /**
+    **   Writes a program. Each top-level statement is generated and written
+    **   in turn, so that programs of any size can be written in constant
+    **   memory.
+    **
+    **   @param out The `Writer` to write the program to.
+    **   @return Whether any statement was broken.
+    **   @throws IOException in the event that the program can not be written.
+    **/
+   public boolean write(Writer out) throws IOException {
+      broken = false;
+      out.write("begin");
+      for (int i = 0; i < statements; i++) {
+         tokens.clear();
+         newline(1);
+         statement(1, i == statements - 1, random.nextDouble() < nesting);
+         if (i < statements - 1)
+            tokens.add(";");
+         if (random.nextDouble() < errorRate)
+            mutate();
+         flush(out);
+      }
+      out.write("\nend\n");
+      return broken;
+   }
+   
+   /**
+    **   Generates a `<statement>`.
+    **
+    **   @param level The nesting level of the statement.
+    **   @param last Whether it ends its statement list.
+    **   @param nested Whether it should nest other statements, if the depth
+    **      allows.
+    **/
+   void statement(int level, boolean last, boolean nested) {
+      // 0-2 are simple statements and 3-5 compound ones.
+      int kind = random.nextInt(3);
+      if (nested && level < depth)
+         kind += 3;
+      if (kind == 0 && last)
+         kind = 1;
+      switch (kind) {
+      case 0:
+         tokens.add(identifier());
+         tokens.add(":=");
+         expression(level, nested);
+         break;
+      case 1:
+         tokens.add(identifier());
+         tokens.add(":=");
+         tokens.add("\"s"+random.nextInt(1000)+"\"");
+         break;
+      case 2:
+         tokens.add("call");
+         tokens.add(identifier());
+         tokens.add("(");
+         int arguments = 1 + random.nextInt(maxArguments);
+         for (int i = 0; i < arguments; i++) {
+            if (i > 0)
+               tokens.add(",");
+            tokens.add(identifier());
+         }
+         tokens.add(")");
+         break;
+      case 3:
+         // Only one branch may nest further.
+         boolean otherwise = random.nextBoolean();
+         boolean nestThen = !otherwise || random.nextBoolean();
+         tokens.add("if");
+         condition();
+         tokens.add("then");
+         statementList(level + 1, nestThen);
+         if (otherwise) {
+            newline(level);
+            tokens.add("else");
+            statementList(level + 1, !nestThen);
+         }
+         newline(level);
+         tokens.add("end");
+         tokens.add("if");
+         break;
+      case 4:
+         tokens.add("while");
+         condition();
+         tokens.add("loop");
+         statementList(level + 1, true);
+         newline(level);
+         tokens.add("end");
+         tokens.add("loop");
+         break;
+      default:
+         tokens.add("do");
+         statementList(level + 1, true);
+         newline(level);
+         tokens.add("until");
+         condition();
+      }
+   }
+   
+   /**
+    **   Generates a `<statement list>`, one statement per line. At most one
+    **   of the statements nests others, so that the size of a statement
+    **   grows with its depth rather than exponentially.
+    **
+    **   @param level The nesting level of the statements.
+    **   @param nests Whether any of the statements may nest others.
+    **/
+   void statementList(int level, boolean nests) {
+      int length = 1 + random.nextInt(maxListLength);
+      int nested = nests && random.nextDouble() < nesting ? random.nextInt(length) : -1;
+      for (int i = 0; i < length; i++) {
+         newline(level);
+         statement(level, i == length - 1, i == nested);
+         if (i < length - 1)
+            tokens.add(";");
+      }
+   }
+   
+   /**
+    **   Generates an `<expression>`. At most one of its factors nests another
+    **   expression.
+    **
+    **   @param level The nesting level of the expression.
+    **   @param nested Whether it should nest another, if the depth allows.
+    **/
+   void expression(int level, boolean nested) {
+      boolean binary = random.nextBoolean();
+      boolean second = binary && random.nextBoolean();
+      factor(level, nested && !second);
+      if (binary) {
+         tokens.add(OPERATORS[random.nextInt(OPERATORS.length)]);
+         factor(level, nested && second);
+      }
+   }
+   
+   /**
+    **   Generates a `<factor>`.
+    **
+    **   @param level The nesting level of the factor.
+    **   @param nested Whether it should be a nested expression, if the depth
+    **      allows.
+    **/
+   void factor(int level, boolean nested) {
+      if (nested && level < depth) {
+         tokens.add("(");
+         expression(level + 1, random.nextDouble() < nesting);
+         tokens.add(")");
+      } else if (random.nextBoolean()) {
+         tokens.add(identifier());
+      } else {
+         tokens.add(Integer.toString(random.nextInt(10000)));
+      }
+   }
+   
+   /**
+    **   Generates a `<condition>`.
+    **/
+   void condition() {
+      tokens.add(identifier());
+      tokens.add(CONDITIONAL_OPERATORS[random.nextInt(CONDITIONAL_OPERATORS.length)]);
+      tokens.add(random.nextBoolean() ? identifier() : Integer.toString(random.nextInt(100)));
+   }
+   
+   /**
+    **   Returns a random identifier. Identifiers are a letter and a number,
+    **   so that they are never keywords.
+    **
+    **   @return The identifier.
+    **/
+   String identifier() {
+      return (char) ('a' + random.nextInt(26))+Integer.toString(random.nextInt(100));
+   }
+   
+   /**
+    **   Starts a new line, indented to the given level. Indentation stops
+    **   growing past `MAX_INDENT` levels, so that deeply nested programs do
+    **   not grow quadratically.
+    **
+    **   @param level The nesting level.
+    **/
+   void newline(int level) {
+      tokens.add(INDENTS[Math.min(level, MAX_INDENT)]);
+   }
+   
+   /**
+    **   Breaks the current statement by deleting one of its tokens or
+    **   replacing it with one that does not belong there.
+    **/
+   void mutate() {
+      int index;
+      do {
+         index = random.nextInt(tokens.size());
+      } while (tokens.get(index).startsWith("\n"));
+      String replacement;
+      do {
+         replacement = MISPLACED[random.nextInt(MISPLACED.length)];
+      } while (replacement.equals(tokens.get(index)));
+      if (random.nextBoolean())
+         tokens.remove(index);
+      else
+         tokens.set(index, replacement);
+      broken = true;
+   }
+   
+   /**
+    **   Writes out the current statement's tokens.
+    **
+    **   @param out The `Writer` to write the tokens to.
+    **   @throws IOException in the event that the tokens can not be written.
+    **/
+   void flush(Writer out) throws IOException {
+      boolean lineStart = true;
+      for (String token : tokens) {
+         if (token.startsWith("\n")) {
+            lineStart = true;
+         } else {
+            if (!lineStart)
+               out.write(' ');
+            lineStart = false;
+         }
+         out.write(token);
+      }
+   }
+   
+   /**
+    **   Runs the generator. Usage:
+    **
+    **      java ProgramGenerator [-seed seed] [-n files] [-s statements] [-d depth] [-p nesting] [-e errorRate] directory
+    **
+    **   Each file is generated from its own seed, derived from `-seed` and
+    **   the file's number, so the files are generated in parallel but the
+    **   corpus is the same from run to run. If the directory is `-` a single
+    **   program is written to the standard output instead.
+    **
+    **   @param args The command-line arguments.
+    **   @throws Exception in the event that the corpus can not be written.
+    **/
+   public static void main(String[] args) throws Exception {
+      long seed = 1;
+      int files = 1;
+      int statements = 100;
+      int depth = 8;
+      double nesting = 0.3;
+      double errorRate = 0;
+      String directory = "-";
+      for (int i = 0; i < args.length; i++) {
+         switch (args[i]) {
+         case "-seed":
+            seed = Long.parseLong(args[++i]);
+            break;
+         case "-n":
+            files = Integer.parseInt(args[++i]);
+            break;
+         case "-s":
+            statements = Integer.parseInt(args[++i]);
+            break;
+         case "-d":
+            depth = Integer.parseInt(args[++i]);
+            break;
+         case "-p":
+            nesting = Double.parseDouble(args[++i]);
+            break;
+         case "-e":
+            errorRate = Double.parseDouble(args[++i]);
+            break;
+         default:
+            directory = args[i];
+         }
+      }
+      
+      // The generator recurses once or twice per level of nesting, so its
+      // threads are given a stack to match the depth.
+      long stackSize = (1 << 20) + depth * 4096L;
+      ExecutorService pool = Executors.newFixedThreadPool(
+         directory.equals("-") ? 1 : Runtime.getRuntime().availableProcessors(),
+         task -> new Thread(null, task, "ProgramGenerator", stackSize));
+      List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+      Path root = Paths.get(directory);
+      if (directory.equals("-")) {
+         Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+         results.add(pool.submit(generate(seed, statements, depth, nesting, errorRate, out)));
+      } else {
+         Files.createDirectories(root);
+         for (int i = 0; i < files; i++) {
+            Writer out = new LazyWriter(root.resolve(String.format("program%06d.txt", i)));
+            results.add(pool.submit(generate(seed * 1000003 + i, statements, depth, nesting, errorRate, out)));
+         }
+      }
+      int broken = 0;
+      try {
+         for (Future<Boolean> result : results)
+            if (result.get())
+               broken++;
+      } finally {
+         pool.shutdown();
+      }
+      if (!directory.equals("-")) {
+         long bytes;
+         try (Stream<Path> paths = Files.list(root)) {
+            bytes = paths.mapToLong(ProgramGenerator::size).sum();
+         }
+         System.err.printf("%d files, %d broken, %d bytes%n", files, broken, bytes);
+      }
+   }
+   
+   /**
+    **   Creates a task that generates one program and closes its output.
+    **
+    **   @return The task, which returns whether the program was broken.
+    **/
+   static Callable<Boolean> generate(long seed, int statements, int depth, double nesting,
+         double errorRate, Writer out) {
+      return () -> {
+         ProgramGenerator generator = new ProgramGenerator(seed, statements, depth, errorRate);
+         generator.setNesting(nesting);
+         try {
+            return generator.write(out);
+         } finally {
+            out.close();
+         }
+      };
+   }
+   
+   /**
+    **   A `Writer` to a file that is only opened when it is first written to,
+    **   so that a corpus of any number of files can be queued up front.
+    **/
+   static class LazyWriter extends Writer {
+      Path file;
+      Writer out;
+      
+      LazyWriter(Path file) {
+         this.file = file;
+      }
+      
+      public void write(char[] buffer, int offset, int length) throws IOException {
+         if (out == null)
+            out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file)), 1 << 16);
+         out.write(buffer, offset, length);
+      }
+      
+      public void flush() throws IOException {
+         if (out != null)
+            out.flush();
+      }
+      
+      public void close() throws IOException {
+         if (out != null)
+            out.close();
+      }
+   }
+   
+   /**
+    **   Returns the size of a file, or 0 if it can not be read.
+    **
+    **   @param file The file.
+    **   @return The size in bytes.
+    **/
+   static long size(Path file) {
+      try {
+         return Files.size(file);
+      } catch (IOException ex) {
+         return 0;
+      }
+   }
+}
@@ -0,0 +1,217 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a generator that records the events it is sent in
+ ** compact parallel arrays, so that they can be replayed into another
+ ** generator later, in whole or in part. Token line numbers can be shifted as
+ ** they are replayed, so that recorded events can be reused after lines have
+ ** been inserted or removed above them.
+ **/
+
+import java.util.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class RecordingGenerate extends AbstractGenerate {
+   static final int BEGIN = 0;
+   static final int END = 1;
+   static final int TOKEN = 2;
+   static final int SUCCESS = 3;
+   static final int ERROR = 4;
+   static final int BEGIN_NAME = 5;
+   static final int END_NAME = 6;
+   
+   int[] kinds = new int[256];
+   int[] args = new int[256];
+   int[] lines = new int[256];
+   Object[] texts = new Object[256];
+   int size = 0;
+   
+   /**
+    **   Records a token for a terminal.
+    **
+    **   @param token The terminal token.
+    **/
+   public void insertTerminal(Token token) {
+      add(TOKEN, token.symbol, token.lineNumber, token.text);
+   }
+   
+   /**
+    **   Records the commencement of parsing a non-terminal.
+    **
+    **   @param rule The non-terminal.
+    **/
+   public void commenceNonterminal(Rule rule) {
+      add(BEGIN, rule.id(), 0, null);
+   }
+   
+   /**
+    **   Records the finishing of parsing a non-terminal.
+    **
+    **   @param rule The non-terminal.
+    **/
+   public void finishNonterminal(Rule rule) {
+      add(END, rule.id(), 0, null);
+   }
+   
+   /**
+    **   Records the commencement of parsing a non-terminal given by name.
+    **
+    **   @param name The name of the non-terminal.
+    **/
+   public void commenceNonterminal(String name) {
+      add(BEGIN_NAME, 0, 0, name);
+   }
+   
+   /**
+    **   Records the finishing of parsing a non-terminal given by name.
+    **
+    **   @param name The name of the non-terminal.
+    **/
+   public void finishNonterminal(String name) {
+      add(END_NAME, 0, 0, name);
+   }
+   
+   /**
+    **   Records that the file was successfully parsed.
+    **/
+   public void reportSuccess() {
+      add(SUCCESS, 0, 0, null);
+   }
+   
+   /**
+    **   Records that an error was encountered whilst parsing the file.
+    **
+    **   @param token The token for which the error ocurred.
+    **   @param explanatoryMessage A message for the error report.
+    **   @throws CompilationException up the call stack until it reaches the
+    **      `SyntaxAnalyser`'s `parse()` method for a stack trace.
+    **/
+   public void reportError(Token token, String explanatoryMessage) throws CompilationException {
+      add(ERROR, token.symbol, token.lineNumber, new String[] { explanatoryMessage, token.text });
+      throw new StacklessCompilationException("expected "+explanatoryMessage+", found: '"+token.text+"'");
+   }
+   
+   /**
+    **   Returns the number of events recorded.
+    **
+    **   @return The number of events.
+    **/
+   public int size() {
+      return size;
+   }
+   
+   /**
+    **   Discards every recorded event, keeping the arrays for reuse.
+    **/
+   public void clear() {
+      Arrays.fill(texts, 0, size, null);
+      size = 0;
+   }
+   
+   /**
+    **   Replays every recorded event into another generator.
+    **
+    **   @param generate The generator to replay into.
+    **   @throws CompilationException if a recorded error is replayed and the
+    **      generator throws it.
+    **/
+   public void replay(AbstractGenerate generate) throws CompilationException {
+      replay(generate, 0, size, 0);
+   }
+   
+   /**
+    **   Replays a range of the recorded events into another generator. An
+    **   error that was recovered from is followed by more events, so the
+    **   replay carries on past each recorded error, and the first one the
+    **   generator throws is rethrown once the whole range has been replayed.
+    **
+    **   @param generate The generator to replay into.
+    **   @param from The index of the first event to replay.
+    **   @param to The index after the last event to replay.
+    **   @param lineShift The number of lines to add to each token's line.
+    **   @throws CompilationException if a recorded error is replayed and the
+    **      generator throws it.
+    **/
+   public void replay(AbstractGenerate generate, int from, int to, int lineShift) throws CompilationException {
+      CompilationException thrown = null;
+      for (int i = from; i < to; i++) {
+         switch (kinds[i]) {
+         case BEGIN:
+            generate.commenceNonterminal(Rule.byId(args[i]));
+            break;
+         case END:
+            generate.finishNonterminal(Rule.byId(args[i]));
+            break;
+         case TOKEN:
+            generate.insertTerminal(new Token(args[i], (String) texts[i], lines[i] + lineShift));
+            break;
+         case SUCCESS:
+            generate.reportSuccess();
+            break;
+         case ERROR:
+            String[] error = (String[]) texts[i];
+            try {
+               generate.reportError(new Token(args[i], error[1], lines[i] + lineShift), error[0]);
+            } catch (CompilationException ex) {
+               if (thrown == null)
+                  thrown = ex;
+            }
+            break;
+         case BEGIN_NAME:
+            generate.commenceNonterminal((String) texts[i]);
+            break;
+         case END_NAME:
+            generate.finishNonterminal((String) texts[i]);
+            break;
+         }
+      }
+      if (thrown != null)
+         throw thrown;
+   }
+   
+   /**
+    **   Appends an event, growing the arrays as needed.
+    **/
+   void add(int kind, int arg, int line, Object text) {
+      if (size == kinds.length) {
+         kinds = Arrays.copyOf(kinds, size * 2);
+         args = Arrays.copyOf(args, size * 2);
+         lines = Arrays.copyOf(lines, size * 2);
+         texts = Arrays.copyOf(texts, size * 2);
+      }
+      kinds[size] = kind;
+      args[size] = arg;
+      lines[size] = line;
+      texts[size] = text;
+      size++;
+   }
+}
@@ -0,0 +1,165 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This enum represents the non-terminals of the SCC# grammar, so that the
+ ** parser can pass compact rule ids to the generator rather than strings.
+ ** Generators that need the text can resolve it from the rule.
+ **/
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public enum Rule {
+   STATEMENT_PART(0, "<statement part>"),
+   STATEMENT_LIST(1, "<statement list>"),
+   STATEMENT(2, "<statement>"),
+   ASSIGNMENT_STATEMENT(3, "<assignment statement>"),
+   ASSIGNMENT_STATEMENT_REMAINDER(4, "<NEW assignment statement remainder>", "<assignment statement remainder>"),
+   IF_STATEMENT(5, "<if statement>"),
+   IF_STATEMENT_REMAINDER(6, "<NEW if statement remainder>", "<if statement remainder>"),
+   WHILE_STATEMENT(7, "<while statement>"),
+   PROCEDURE_STATEMENT(8, "<procedure statement>"),
+   UNTIL_STATEMENT(9, "<until statement>"),
+   EXPRESSION(10, "<expression>"),
+   EXPRESSION_REMAINDER(11, "<NEW expression remainder>"),
+   FACTOR(12, "<factor>"),
+   ARGUMENT_LIST(13, "<argument list>"),
+   CONDITION(14, "<condition>"),
+   CONDITION_REMAINDER(15, "<NEW condition remainder>"),
+   CONDITIONAL_OPERATOR(16, "<conditional operator>");
+   
+   static final Rule[] RULES = values();
+   static final Rule[] CODES;
+   static {
+      int max = -1;
+      for (Rule rule : RULES)
+         max = Math.max(max, rule.code);
+      CODES = new Rule[max + 1];
+      for (Rule rule : RULES)
+         CODES[rule.code] = rule;
+   }
+   
+   /** The id written to persisted traces, which never changes once given. */
+   public final int code;
+   /** The name printed by the generator, e.g. `rggBEGIN <statement>`. */
+   public final String eventName;
+   /** The name printed in the `Compilation Exception` trace. */
+   public final String traceName;
+   
+   /**
+    **   Constructor function. Creates a rule whose trace name is the same as
+    **   its event name.
+    **
+    **   @param code The persisted id of the non-terminal.
+    **   @param eventName The name of the non-terminal.
+    **/
+   Rule(int code, String eventName) {
+      this(code, eventName, eventName);
+   }
+   
+   /**
+    **   Constructor function. Creates a rule whose trace name differs from its
+    **   event name, as is the case for some of the non-terminals I have added
+    **   to the grammar.
+    **
+    **   @param code The persisted id of the non-terminal.
+    **   @param eventName The name printed by the generator.
+    **   @param traceName The name printed in the trace.
+    **/
+   Rule(int code, String eventName, String traceName) {
+      this.code = code;
+      this.eventName = eventName;
+      this.traceName = traceName;
+   }
+   
+   /**
+    **   Returns the compact id of this rule, suitable for indexing arrays. It
+    **   follows the order of the declarations, so it must not be persisted;
+    **   use `code` instead.
+    **
+    **   @return The rule id.
+    **/
+   public int id() {
+      return ordinal();
+   }
+   
+   /**
+    **   Returns the number of rules, i.e. the size of an array indexed by id.
+    **
+    **   @return The number of rules.
+    **/
+   public static int count() {
+      return RULES.length;
+   }
+   
+   /**
+    **   Returns the rule with the given id.
+    **
+    **   @param id The rule id.
+    **   @return The rule.
+    **/
+   public static Rule byId(int id) {
+      return RULES[id];
+   }
+   
+   /**
+    **   Returns the rule with the given persisted id.
+    **
+    **   @param code The persisted id.
+    **   @return The rule, or `null` if there is none.
+    **/
+   public static Rule byCode(int code) {
+      return (code >= 0 && code < CODES.length) ? CODES[code] : null;
+   }
+   
+   /**
+    **   Returns the rule with the given event name.
+    **
+    **   @param eventName The name printed by the generator.
+    **   @return The rule, or `null` if there is none.
+    **/
+   public static Rule byEventName(String eventName) {
+      for (Rule rule : RULES)
+         if (rule.eventName.equals(eventName))
+            return rule;
+      return null;
+   }
+   
+   /**
+    **   Returns the line of the `Compilation Exception` trace for this rule,
+    **   e.g. `'<statement>' at line 4.`
+    **
+    **   @param line The line at which the rule started.
+    **   @return The trace line.
+    **/
+   public String traceAt(int line) {
+      return "'"+traceName+"' at line "+line+".";
+   }
+}
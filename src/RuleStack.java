@@ -0,0 +1,137 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents the stack of non-terminals that the parser is
+ ** currently inside, each with the line on which it started. When a syntax
+ ** error is thrown the stack is left as it was at the point of the error, so
+ ** the `Caused by` chain of the `Compilation Exception` trace can be built from
+ ** it when (and only if) the trace is printed, rather than by wrapping the
+ ** exception once per non-terminal as it unwinds.
+ **/
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class RuleStack {
+   static final int SHRINK_SIZE = 4096;
+   
+   int[] rules = new int[64];
+   int[] lines = new int[64];
+   int depth = 0;
+   
+   /**
+    **   Pushes a non-terminal onto the stack.
+    **
+    **   @param rule The non-terminal.
+    **   @param line The line on which it started.
+    **/
+   public void push(Rule rule, int line) {
+      if (depth == rules.length) {
+         rules = java.util.Arrays.copyOf(rules, depth * 2);
+         lines = java.util.Arrays.copyOf(lines, depth * 2);
+      }
+      rules[depth] = rule.id();
+      lines[depth] = line;
+      depth++;
+   }
+   
+   /**
+    **   Pops the innermost non-terminal off the stack.
+    **/
+   public void pop() {
+      depth--;
+   }
+   
+   /**
+    **   Returns the number of non-terminals on the stack.
+    **
+    **   @return The depth of the stack.
+    **/
+   public int depth() {
+      return depth;
+   }
+   
+   /**
+    **   Returns the non-terminal at the given depth.
+    **
+    **   @param i The depth, where 0 is the outermost non-terminal.
+    **   @return The non-terminal.
+    **/
+   public Rule rule(int i) {
+      return Rule.byId(rules[i]);
+   }
+   
+   /**
+    **   Returns the line on which the non-terminal at the given depth
+    **   started.
+    **
+    **   @param i The depth, where 0 is the outermost non-terminal.
+    **   @return The line number.
+    **/
+   public int line(int i) {
+      return lines[i];
+   }
+   
+   /**
+    **   Discards every non-terminal above the given depth.
+    **
+    **   @param depth The depth to cut the stack back to.
+    **/
+   public void truncate(int depth) {
+      this.depth = depth;
+   }
+   
+   /**
+    **   Empties the stack. If a pathologically deep file grew it, it is
+    **   shrunk back down so that a reused parser does not hold on to the
+    **   memory.
+    **/
+   public void clear() {
+      depth = 0;
+      if (rules.length > SHRINK_SIZE) {
+         rules = new int[64];
+         lines = new int[64];
+      }
+   }
+   
+   /**
+    **   Builds the exception chain that the trace is printed from, with one
+    **   exception per non-terminal on the stack wrapping the error itself, as
+    **   if each non-terminal had caught and rethrown it.
+    **
+    **   @param cause The error that was thrown.
+    **   @return The outermost exception in the chain.
+    **/
+   public CompilationException toException(CompilationException cause) {
+      for (int i = depth - 1; i >= 0; i--)
+         cause = new StacklessCompilationException(rule(i).traceAt(lines[i]), cause);
+      return cause;
+   }
+}
@@ -0,0 +1,69 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a `CompilationException` that does not fill in a
+ ** stack trace. The parser reports where an error ocurred through its own
+ ** `RuleStack` rather than through the Java call stack, so capturing the
+ ** latter would be wasted work on every syntax error.
+ **/
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class StacklessCompilationException extends CompilationException {
+   /**
+    **   Constructor function.
+    **
+    **   @param message The message for the error.
+    **/
+   public StacklessCompilationException(String message) {
+      super(message);
+   }
+   
+   /**
+    **   Constructor function.
+    **
+    **   @param message The message for the error.
+    **   @param cause The error that caused this one.
+    **/
+   public StacklessCompilationException(String message, CompilationException cause) {
+      super(message, cause);
+   }
+   
+   /**
+    **   Skips capturing the stack trace.
+    **
+    **   @return This exception.
+    **/
+   @Override
+   public synchronized Throwable fillInStackTrace() {
+      return this;
+   }
+}
@@ -0,0 +1,174 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents the events that a consumer of the parse wants, so
+ ** that the analyser can skip dispatching the rest.
+ **
+ ** A subscription names the rules whose `BEGIN` and `END` events are wanted
+ ** and the token symbols whose terminals are wanted, optionally only those
+ ** within one of the wanted rules, and whether the success and error reports
+ ** are wanted. For example, to get only `<procedure statement>`s and the
+ ** identifiers within them:
+ **
+ **    Subscription.none().rules(Rule.PROCEDURE_STATEMENT).tokens(Token.identifier).scoped(true)
+ **
+ ** With `none()` alone the analyser only validates, dispatching no events at
+ ** all; the trace of any error is printed as usual.
+ **/
+
+import java.util.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class Subscription {
+   boolean[] rules = new boolean[Rule.count()];
+   long symbols = 0;
+   boolean scoped = false;
+   boolean success = false;
+   boolean errors = false;
+   
+   /**
+    **   Creates a subscription to every event.
+    **
+    **   @return The subscription.
+    **/
+   public static Subscription all() {
+      Subscription subscription = new Subscription();
+      Arrays.fill(subscription.rules, true);
+      subscription.symbols = -1L;
+      subscription.success = true;
+      subscription.errors = true;
+      return subscription;
+   }
+   
+   /**
+    **   Creates a subscription to no events, for validation only.
+    **
+    **   @return The subscription.
+    **/
+   public static Subscription none() {
+      return new Subscription();
+   }
+   
+   /**
+    **   Adds rules whose `BEGIN` and `END` events are wanted.
+    **
+    **   @param rules The rules.
+    **   @return This subscription.
+    **/
+   public Subscription rules(Rule... rules) {
+      for (Rule rule : rules)
+         this.rules[rule.id()] = true;
+      return this;
+   }
+   
+   /**
+    **   Adds token symbols whose terminals are wanted.
+    **
+    **   @param symbols The symbols, e.g. `Token.identifier`.
+    **   @return This subscription.
+    **/
+   public Subscription tokens(int... symbols) {
+      for (int symbol : symbols) {
+         if (symbol < 0 || symbol >= 64)
+            throw new IllegalArgumentException("token symbol "+symbol+" out of range");
+         this.symbols |= 1L << symbol;
+      }
+      return this;
+   }
+   
+   /**
+    **   Adds every token symbol.
+    **
+    **   @return This subscription.
+    **/
+   public Subscription allTokens() {
+      symbols = -1L;
+      return this;
+   }
+   
+   /**
+    **   Sets whether terminals are only wanted within one of the wanted
+    **   rules.
+    **
+    **   @param scoped Whether terminals are scoped to the wanted rules.
+    **   @return This subscription.
+    **/
+   public Subscription scoped(boolean scoped) {
+      this.scoped = scoped;
+      return this;
+   }
+   
+   /**
+    **   Sets whether the success report is wanted.
+    **
+    **   @param success Whether to report success.
+    **   @return This subscription.
+    **/
+   public Subscription success(boolean success) {
+      this.success = success;
+      return this;
+   }
+   
+   /**
+    **   Sets whether error reports are wanted. If not, the generator's
+    **   `reportError()` is not called, but the error is still thrown and its
+    **   trace printed.
+    **
+    **   @param errors Whether to report errors.
+    **   @return This subscription.
+    **/
+   public Subscription errors(boolean errors) {
+      this.errors = errors;
+      return this;
+   }
+   
+   /**
+    **   Returns whether a rule's events are wanted.
+    **
+    **   @param rule The rule.
+    **   @return Whether they are wanted.
+    **/
+   public boolean wants(Rule rule) {
+      return rules[rule.id()];
+   }
+   
+   /**
+    **   Returns whether a terminal is wanted.
+    **
+    **   @param symbol The terminal's token symbol.
+    **   @param scope The number of wanted rules the terminal is within.
+    **   @return Whether it is wanted.
+    **/
+   public boolean wants(int symbol, int scope) {
+      return (symbol & ~63) == 0 && (symbols & 1L << symbol) != 0 && (!scoped || scope > 0);
+   }
+}
@@ -31,15 +31,36 @@
  **/
  
 import java.io.*;
+import java.util.*;
 
 /**
  **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
  **   @version 1.0
  **/
 public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
-	LexicalAnalyser lex ;
+   /**
+    **   The version of the grammar and of the output the analyser produces
+    **   for it. It must be changed whenever either changes, as it keys the
+    **   results held by a `ParseCache`.
+    **/
+   public static final String VERSION = "1.0";
+   
+	TokenSource lex ;
 	Token nextToken ;
-	Generate myGenerate = null;
+	AbstractGenerate myGenerate = null;
+	long tokenCount = 0;
+	RuleStack rules = new RuleStack();
+	boolean recovery = false;
+	int lastSymbol = -1;
+	ArrayList<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+	Subscription subscription = null;
+	int scope = 0;
+	ExpressionMode expressions = ExpressionMode.GRAMMAR;
+	int[] chains = new int[16];
+	ParseLimits limits = null;
+	int depthLimit = Integer.MAX_VALUE;
+	long deadline = 0;
+	long nextCheck = Long.MAX_VALUE;
    
    /**
     **   Constructor function. Creates a new Lexical Analyser using the given
@@ -48,24 +69,210 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
     **   @param fileName The name of the file to syntactically analyse.
     **/
    public SyntaxAnalyser(String fileName) throws IOException {
-      lex = new LexicalAnalyser(fileName);
+      lex = new LexicalAnalyserSource(fileName);
+   }
+   
+   /**
+    **   Constructor function. Creates a new Lexical Analyser using the given
+    **   filename, with output going to the given generator rather than a new
+    **   one that prints to the standard output.
+    **
+    **   @param fileName The name of the file to syntactically analyse.
+    **   @param generate The generator to send the parse output to.
+    **/
+   public SyntaxAnalyser(String fileName, AbstractGenerate generate) throws IOException {
+      this(fileName);
+      myGenerate = generate;
+   }
+   
+   /**
+    **   Constructor function. Creates an analyser with no input, for use with
+    **   `reset()`, so that one analyser and generator can be reused across
+    **   many files.
+    **
+    **   @param generate The generator to send the parse output to.
+    **/
+   public SyntaxAnalyser(AbstractGenerate generate) {
+      myGenerate = generate;
+   }
+   
+   /**
+    **   Points this analyser at a new file, discarding all state left over
+    **   from the previous one. The generator is kept.
+    **
+    **   @param fileName The name of the file to syntactically analyse.
+    **   @throws IOException in the event that the file can not be opened.
+    **/
+   public void reset(String fileName) throws IOException {
+      reset(new LexicalAnalyserSource(fileName));
+   }
+   
+   /**
+    **   Points this analyser at a new source of tokens, e.g. a
+    **   `ByteBufferLexicalAnalyser` over a memory-mapped file, discarding all
+    **   state left over from the previous one. The generator is kept.
+    **
+    **   @param source The source to read tokens from.
+    **/
+   public void reset(TokenSource source) {
+      lex = source;
+      nextToken = null;
+      tokenCount = 0;
+      rules.clear();
+      diagnostics.clear();
+      scope = 0;
+      armLimits();
+   }
+   
+   /**
+    **   Points this analyser at a fragment of a file and reads its first
+    **   token, so that the caller can parse it directly with the
+    **   non-terminal methods (e.g. one `<statement>` at a time) rather than
+    **   with `parse()`.
+    **
+    **   @param source The source to read the fragment's tokens from.
+    **   @throws IOException in the event that the source can not be read.
+    **/
+   public void startFragment(TokenSource source) throws IOException {
+      reset(source);
+      nextToken = lex.getNextToken();
+   }
+   
+   /**
+    **   Sets whether to recover from syntax errors. With recovery on, an
+    **   error in a `<statement>` is recorded as a `Diagnostic`, the tokens up
+    **   to the next `;` or the end of the enclosing block are skipped, and
+    **   parsing carries on, so that every error in the file is reported from
+    **   one pass.
+    **
+    **   @param recovery Whether to recover from syntax errors.
+    **/
+   public void setRecovery(boolean recovery) {
+      this.recovery = recovery;
+   }
+   
+   /**
+    **   Sets the resources that parsing each file may use. The deadline runs
+    **   from when the analyser is pointed at the file by `reset()`, or from
+    **   now for the current one.
+    **
+    **   @param limits The limits, or `null` for none.
+    **/
+   public void setLimits(ParseLimits limits) {
+      this.limits = limits;
+      depthLimit = (limits == null) ? Integer.MAX_VALUE : limits.maxDepth;
+      armLimits();
+   }
+   
+   /**
+    **   Starts the deadline for a new file and works out after how many
+    **   tokens the limits are first checked. Without a timeout the clock is
+    **   never read, and only the token limit is checked.
+    **/
+   void armLimits() {
+      nextCheck = Long.MAX_VALUE;
+      if (limits == null)
+         return;
+      if (limits.timeout > 0) {
+         deadline = System.nanoTime() + limits.timeout * 1000000;
+         nextCheck = tokenCount + limits.checkInterval;
+      }
+      if (limits.maxTokens < Long.MAX_VALUE)
+         nextCheck = Math.min(nextCheck, limits.maxTokens + 1);
+   }
+   
+   /**
+    **   Checks the token limit and the deadline, and works out when to check
+    **   them next.
+    **
+    **   @throws ResourceLimitException in the event that either has been
+    **      exceeded.
+    **/
+   void checkLimits() throws ResourceLimitException {
+      if (tokenCount > limits.maxTokens)
+         throw new ResourceLimitException("more than "+limits.maxTokens+" tokens at line "+nextToken.lineNumber);
+      if (limits.timeout > 0 && System.nanoTime() - deadline > 0)
+         throw new ResourceLimitException("more than "+limits.timeout+"ms at line "+nextToken.lineNumber);
+      nextCheck = Long.MAX_VALUE;
+      if (limits.timeout > 0)
+         nextCheck = tokenCount + limits.checkInterval;
+      if (limits.maxTokens < Long.MAX_VALUE)
+         nextCheck = Math.min(nextCheck, limits.maxTokens + 1);
+   }
+   
+   /**
+    **   Sets how `<expression>`s are parsed, e.g. `ExpressionMode.FLAT` to
+    **   accept any number of operators and generate them all in one
+    **   `<expression>`.
+    **
+    **   @param expressions The expression mode.
+    **/
+   public void setExpressionMode(ExpressionMode expressions) {
+      this.expressions = expressions;
+   }
+   
+   /**
+    **   Sets which events the generator is sent. Events that are not
+    **   subscribed to are skipped without being dispatched at all, so that
+    **   e.g. `Subscription.none()` only validates the file.
+    **
+    **   @param subscription The events to send, or `null` for all of them.
+    **/
+   public void setSubscription(Subscription subscription) {
+      this.subscription = subscription;
+   }
+   
+   /**
+    **   Returns the syntax errors found by the last parse, in the order they
+    **   were found. Without recovery there is at most one.
+    **
+    **   @return The errors.
+    **/
+   public List<Diagnostic> getDiagnostics() {
+      return diagnostics;
+   }
+   
+   /**
+    **   Returns the generator that the parse output is sent to.
+    **
+    **   @return The generator.
+    **/
+   public AbstractGenerate getGenerate() {
+      return myGenerate;
+   }
+   
+   /**
+    **   Returns whether this analyser holds on to a token after reading the
+    **   next one. If not, its source may hand it the same `Token` every time
+    **   (see `ByteBufferLexicalAnalyser.setReusedToken()`).
+    **
+    **   @return Whether the analyser holds on to tokens.
+    **/
+   public boolean holdsTokens() {
+      return false;
+   }
+   
+   /**
+    **   Returns the number of terminal tokens accepted so far, including any
+    **   skipped whilst recovering from syntax errors.
+    **
+    **   @return The number of accepted tokens.
+    **/
+   public long getTokenCount() {
+      return tokenCount;
    }
    
 	/**
 	 **   Begin syntax analysis at the distinguished symbol token `<statement part>`.
 	 **/
 	public void _statementPart_() throws IOException, CompilationException {
-      int currLine = nextToken.lineNumber;
-		try {
-         myGenerate.commenceNonterminal("<statement part>");
-         acceptTerminal(Token.beginSymbol);
-         _statementList_();
-         acceptTerminal(Token.endSymbol);
-         myGenerate.finishNonterminal("<statement part>");
-      } catch (CompilationException ex) {
-         String errString = "'<statement part>' at line "+currLine+".";
-         throw new CompilationException(errString , ex);
-      }
+      rules.push(Rule.STATEMENT_PART, nextToken.lineNumber);
+      commence(Rule.STATEMENT_PART);
+      acceptTerminal(Token.beginSymbol);
+      _statementList_();
+      acceptTerminal(Token.endSymbol);
+      finish(Rule.STATEMENT_PART);
+      rules.pop();
    }
    
 	/**
@@ -77,61 +284,177 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
 	 **      fails
 	 **/
    public void _statementList_() throws IOException, CompilationException {
-      int currLine = nextToken.lineNumber;
-		try {
-         myGenerate.commenceNonterminal("<statement list>");
+      rules.push(Rule.STATEMENT_LIST, nextToken.lineNumber);
+      commence(Rule.STATEMENT_LIST);
+      statement();
+      while (nextToken.symbol == Token.semicolonSymbol) {
+         acceptTerminal(Token.semicolonSymbol);
+         statement();
+      }
+      finish(Rule.STATEMENT_LIST);
+      rules.pop();
+   }
+   
+	/**
+	 **   Syntactically analyse a `<statement>` within a `<statement list>`,
+	 **   recovering from any syntax error in it if recovery is on. The
+	 **   non-terminals abandoned by the error are finished, so that the
+	 **   generator's events stay properly nested.
+	 **
+	 **	@throws IOException in the event that the `LexicalAnalyser` can no
+	 **		longer read.
+	 **   @throws CompilationException in the event that the syntax analysis
+	 **      fails and recovery is off
+	 **/
+   void statement() throws IOException, CompilationException {
+      if (!recovery) {
+         _statement_();
+         return;
+      }
+      int depth = rules.depth();
+      try {
          _statement_();
-         while (nextToken.symbol == Token.semicolonSymbol) {
-            acceptTerminal(Token.semicolonSymbol);
-            _statement_();
-         }
-         myGenerate.finishNonterminal("<statement list>");
       } catch (CompilationException ex) {
-         String errString = "'<statement list>' at line "+currLine+".";
-         throw new CompilationException(errString, ex);
+         if (ex instanceof ResourceLimitException)
+            throw ex;
+         record(ex);
+         int blocks = 0;
+         for (int i = depth; i < rules.depth(); i++)
+            if (isOpenBlock(i))
+               blocks++;
+         while (rules.depth() > depth) {
+            finish(rules.rule(rules.depth() - 1));
+            rules.pop();
+         }
+         synchronise(blocks);
       }
    }
    
 	/**
-	 **   Syntactically analyse the `<statement>` non-terminal token.
+	 **   Works out whether the non-terminal at the given depth of the rule
+	 **   stack is a block whose closing `end` or `until` has not yet been
+	 **   reached, and so must be skipped over when recovering.
+	 **
+	 **   @param i The depth in the rule stack.
+	 **   @return Whether it is an unclosed block.
+	 **/
+   boolean isOpenBlock(int i) {
+      Rule rule = rules.rule(i);
+      if (rule != Rule.IF_STATEMENT && rule != Rule.WHILE_STATEMENT && rule != Rule.UNTIL_STATEMENT)
+         return false;
+      if (rule == Rule.UNTIL_STATEMENT)
+         return i + 1 == rules.depth() || rules.rule(i + 1) != Rule.CONDITION;
+      return i + 1 < rules.depth() || lastSymbol != Token.endSymbol;
+   }
+   
+	/**
+	 **   Records a syntax error as a `Diagnostic`, with the trace it would
+	 **   have had were it not recovered from.
+	 **
+	 **   @param ex The error.
+	 **/
+   void record(CompilationException ex) {
+      if (ex instanceof ResourceLimitException)
+         diagnostics.add(new Diagnostic(nextToken.lineNumber, ex.getMessage(), "\t"+ex.getMessage()+"\n", true));
+      else
+         diagnostics.add(new Diagnostic(nextToken.lineNumber, ex.getMessage(), rules.toException(ex).toTraceString()));
+   }
+   
+	/**
+	 **   Skips tokens until one that a `<statement>` can be followed by: a `;`,
+	 **   or the `end`, `else` or `until` of the enclosing block. Blocks opened
+	 **   whilst skipping, and those the error left open, are skipped over as a
+	 **   whole. Skipped tokens count towards the token limit, and the limits
+	 **   are checked whilst skipping as they are whilst accepting.
 	 **
+	 **   @param blocks The number of blocks the error left open.
 	 **	@throws IOException in the event that the `LexicalAnalyser` can no
 	 **		longer read.
-	 **   @throws CompilationException in the event that the syntax analysis
-	 **      fails
+	 **   @throws ResourceLimitException in the event that a limit is exceeded
+	 **      whilst skipping.
 	 **/
-   public void _statement_() throws IOException, CompilationException {
-      int currLine = nextToken.lineNumber;
-		try {
-         myGenerate.commenceNonterminal("<statement>");
+   void synchronise(int blocks) throws IOException, ResourceLimitException {
+      while (nextToken.symbol != Token.eofSymbol) {
          switch (nextToken.symbol) {
-         case Token.identifier:
-            _assignmentStatement_();
-            break;
          case Token.ifSymbol:
-            _ifStatement_();
-            break;
          case Token.whileSymbol:
-            _whileStatement_();
+         case Token.doSymbol:
+            blocks++;
             break;
-         case Token.callSymbol:
-            _procedureStatement_();
+         case Token.endSymbol:
+            if (blocks == 0)
+               return;
+            blocks--;
+            skip();
+            if (nextToken.symbol != Token.ifSymbol && nextToken.symbol != Token.loopSymbol)
+               continue;
             break;
-         case Token.doSymbol:
-            _untilStatement_();
+         case Token.untilSymbol:
+            if (blocks == 0)
+               return;
+            blocks--;
+            break;
+         case Token.semicolonSymbol:
+         case Token.elseSymbol:
+            if (blocks == 0)
+               return;
             break;
-         default:
-            String errString = "'identifier', '<if statement>', '<while statement>', '<procedure statement>' or '<until statement>' at line "+currLine;
-            myGenerate.reportError(nextToken, errString);
-            throw new CompilationException(errString);
          }
-         myGenerate.finishNonterminal("<statement>");
-      } catch (CompilationException ex) {
-         String errString = "'<statement>' at line "+currLine+".";
-         throw new CompilationException(errString, ex);
+         skip();
       }
    }
    
+	/**
+	 **   Skips the current token whilst recovering, counting it as
+	 **   `acceptTerminal()` counts the tokens it accepts.
+	 **
+	 **	@throws IOException in the event that the `LexicalAnalyser` can no
+	 **		longer read.
+	 **   @throws ResourceLimitException in the event that a limit is exceeded.
+	 **/
+   void skip() throws IOException, ResourceLimitException {
+      tokenCount++;
+      nextToken = lex.getNextToken();
+      if (tokenCount >= nextCheck)
+         checkLimits();
+   }
+   
+	/**
+	 **   Syntactically analyse the `<statement>` non-terminal token.
+	 **
+	 **	@throws IOException in the event that the `LexicalAnalyser` can no
+	 **		longer read.
+	 **   @throws CompilationException in the event that the syntax analysis
+	 **      fails
+	 **/
+   public void _statement_() throws IOException, CompilationException {
+      rules.push(Rule.STATEMENT, nextToken.lineNumber);
+      commence(Rule.STATEMENT);
+      switch (nextToken.symbol) {
+      case Token.identifier:
+         _assignmentStatement_();
+         break;
+      case Token.ifSymbol:
+         _ifStatement_();
+         break;
+      case Token.whileSymbol:
+         _whileStatement_();
+         break;
+      case Token.callSymbol:
+         _procedureStatement_();
+         break;
+      case Token.doSymbol:
+         _untilStatement_();
+         break;
+      default:
+         String errString = "'identifier', '<if statement>', '<while statement>', '<procedure statement>' or '<until statement>' at line "+nextToken.lineNumber;
+         error(errString);
+         throw new StacklessCompilationException(errString);
+      }
+      finish(Rule.STATEMENT);
+      rules.pop();
+   }
+   
 	/**
 	 **   Syntactically analyse the `<assignment statement>` non-terminal token.
 	 **
@@ -141,17 +464,13 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
 	 **      fails
 	 **/
    public void _assignmentStatement_() throws IOException, CompilationException {
-      int currLine = nextToken.lineNumber;
-		try {
-         myGenerate.commenceNonterminal("<assignment statement>");
-         acceptTerminal(Token.identifier);
-         acceptTerminal(Token.becomesSymbol);
-         _assignmentStatementRemainder_();
-         myGenerate.finishNonterminal("<assignment statement>");
-      } catch (CompilationException ex) {
-         String errString = "'<assignment statement>' at line "+currLine+".";
-         throw new CompilationException(errString, ex);
-      }
+      rules.push(Rule.ASSIGNMENT_STATEMENT, nextToken.lineNumber);
+      commence(Rule.ASSIGNMENT_STATEMENT);
+      acceptTerminal(Token.identifier);
+      acceptTerminal(Token.becomesSymbol);
+      _assignmentStatementRemainder_();
+      finish(Rule.ASSIGNMENT_STATEMENT);
+      rules.pop();
    }
    
 	/**
@@ -164,18 +483,14 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
 	 **      fails
 	 **/
    public void _assignmentStatementRemainder_() throws IOException, CompilationException {
-      int currLine = nextToken.lineNumber;
-		try {
-         myGenerate.commenceNonterminal("<NEW assignment statement remainder>");
-         if (nextToken.symbol == Token.stringConstant)
-            acceptTerminal(Token.stringConstant);
-         else
-            _expression_();
-         myGenerate.finishNonterminal("<NEW assignment statement remainder>");
-      } catch (CompilationException ex) {
-         String errString = "'<assignment statement remainder>' at line "+currLine+".";
-         throw new CompilationException(errString, ex);
-      }
+      rules.push(Rule.ASSIGNMENT_STATEMENT_REMAINDER, nextToken.lineNumber);
+      commence(Rule.ASSIGNMENT_STATEMENT_REMAINDER);
+      if (nextToken.symbol == Token.stringConstant)
+         acceptTerminal(Token.stringConstant);
+      else
+         _expression_();
+      finish(Rule.ASSIGNMENT_STATEMENT_REMAINDER);
+      rules.pop();
    }
    
 	/**
@@ -187,21 +502,17 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
 	 **      fails
 	 **/
    public void _ifStatement_() throws IOException, CompilationException {
-      int currLine = nextToken.lineNumber;
-		try {
-         myGenerate.commenceNonterminal("<if statement>");
-         acceptTerminal(Token.ifSymbol);
-         _condition_();
-         acceptTerminal(Token.thenSymbol);
-         _statementList_();
-         _ifStatementRemainder_();
-         acceptTerminal(Token.endSymbol);
-         acceptTerminal(Token.ifSymbol);
-         myGenerate.finishNonterminal("<if statement>");
-      } catch (CompilationException ex) {
-         String errString = "'<if statement>' at line "+currLine+".";
-         throw new CompilationException(errString, ex);
-      }
+      rules.push(Rule.IF_STATEMENT, nextToken.lineNumber);
+      commence(Rule.IF_STATEMENT);
+      acceptTerminal(Token.ifSymbol);
+      _condition_();
+      acceptTerminal(Token.thenSymbol);
+      _statementList_();
+      _ifStatementRemainder_();
+      acceptTerminal(Token.endSymbol);
+      acceptTerminal(Token.ifSymbol);
+      finish(Rule.IF_STATEMENT);
+      rules.pop();
    }
         
 	/**
@@ -209,18 +520,14 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
 	 **   which I have added to the grammar.
 	 **/
    public void _ifStatementRemainder_() throws IOException, CompilationException {
-      int currLine = nextToken.lineNumber;
-		try {
-         myGenerate.commenceNonterminal("<NEW if statement remainder>");
-         if (nextToken.symbol == Token.elseSymbol) {
-            acceptTerminal(Token.elseSymbol);
-            _statementList_();
-         }
-         myGenerate.finishNonterminal("<NEW if statement remainder>");
-      } catch (CompilationException ex) {
-         String errString = "'<if statement remainder>' at line "+currLine+".";
-         throw new CompilationException(errString, ex);
+      rules.push(Rule.IF_STATEMENT_REMAINDER, nextToken.lineNumber);
+      commence(Rule.IF_STATEMENT_REMAINDER);
+      if (nextToken.symbol == Token.elseSymbol) {
+         acceptTerminal(Token.elseSymbol);
+         _statementList_();
       }
+      finish(Rule.IF_STATEMENT_REMAINDER);
+      rules.pop();
    }
 
 	/**
@@ -232,20 +539,16 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
 	 **      fails
 	 **/
    public void _whileStatement_() throws IOException, CompilationException {
-      int currLine = nextToken.lineNumber;
-		try {
-         myGenerate.commenceNonterminal("<while statement>");
-         acceptTerminal(Token.whileSymbol);
-         _condition_();
-         acceptTerminal(Token.loopSymbol);
-         _statementList_();
-         acceptTerminal(Token.endSymbol);
-         acceptTerminal(Token.loopSymbol);
-         myGenerate.finishNonterminal("<while statement>");
-      } catch (CompilationException ex) {
-         String errString = "'<while statement>' at line "+currLine+".";
-         throw new CompilationException(errString, ex);
-      }
+      rules.push(Rule.WHILE_STATEMENT, nextToken.lineNumber);
+      commence(Rule.WHILE_STATEMENT);
+      acceptTerminal(Token.whileSymbol);
+      _condition_();
+      acceptTerminal(Token.loopSymbol);
+      _statementList_();
+      acceptTerminal(Token.endSymbol);
+      acceptTerminal(Token.loopSymbol);
+      finish(Rule.WHILE_STATEMENT);
+      rules.pop();
    }
    
 	/**
@@ -257,19 +560,15 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
 	 **      fails
 	 **/
    public void _procedureStatement_() throws IOException, CompilationException {
-      int currLine = nextToken.lineNumber;
-		try {
-         myGenerate.commenceNonterminal("<procedure statement>");
-         acceptTerminal(Token.callSymbol);
-         acceptTerminal(Token.identifier);
-         acceptTerminal(Token.leftParenthesis);
-         _argumentList_();
-         acceptTerminal(Token.rightParenthesis);
-         myGenerate.finishNonterminal("<procedure statement>");
-      } catch (CompilationException ex) {
-         String errString = "'<procedure statement>' at line "+currLine+".";
-         throw new CompilationException(errString, ex);
-      }
+      rules.push(Rule.PROCEDURE_STATEMENT, nextToken.lineNumber);
+      commence(Rule.PROCEDURE_STATEMENT);
+      acceptTerminal(Token.callSymbol);
+      acceptTerminal(Token.identifier);
+      acceptTerminal(Token.leftParenthesis);
+      _argumentList_();
+      acceptTerminal(Token.rightParenthesis);
+      finish(Rule.PROCEDURE_STATEMENT);
+      rules.pop();
    }
    
 	/**
@@ -281,18 +580,14 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
 	 **      fails
 	 **/
    public void _untilStatement_() throws IOException, CompilationException {
-      int currLine = nextToken.lineNumber;
-		try {
-         myGenerate.commenceNonterminal("<until statement>");
-         acceptTerminal(Token.doSymbol);
-         _statementList_();
-         acceptTerminal(Token.untilSymbol);
-         _condition_();
-         myGenerate.finishNonterminal("<until statement>");
-      } catch (CompilationException ex) {
-         String errString = "'<until statement>' at line "+currLine+".";
-         throw new CompilationException(errString, ex);
-      }
+      rules.push(Rule.UNTIL_STATEMENT, nextToken.lineNumber);
+      commence(Rule.UNTIL_STATEMENT);
+      acceptTerminal(Token.doSymbol);
+      _statementList_();
+      acceptTerminal(Token.untilSymbol);
+      _condition_();
+      finish(Rule.UNTIL_STATEMENT);
+      rules.pop();
    }
    
 	/**
@@ -304,63 +599,148 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
 	 **      fails
 	 **/
    public void _expression_() throws IOException, CompilationException {
-      int currLine = nextToken.lineNumber;
-		try {
-         myGenerate.commenceNonterminal("<expression>");
-         _factor_();
-         _expressionRemainder_();
-         myGenerate.finishNonterminal("<expression>");
-      } catch (CompilationException ex) {
-         String errString = "'<expression>' at line "+currLine+".";
-         throw new CompilationException(errString, ex);
+      if (expressions != ExpressionMode.GRAMMAR) {
+         chainedExpression();
+         return;
       }
+      rules.push(Rule.EXPRESSION, nextToken.lineNumber);
+      commence(Rule.EXPRESSION);
+      _factor_();
+      _expressionRemainder_();
+      finish(Rule.EXPRESSION);
+      rules.pop();
    }
    
 	/**
-	 **   Syntactically analyse the `<expression remainder>` non-terminal token,
-	 **   which I have added to the language grammar.
+	 **   Syntactically analyse an `<expression>` with any number of
+	 **   operators, in a loop rather than by recursion. Parenthesised
+	 **   expressions are parsed by the same loop, with the number of
+	 **   operators so far at each level of parentheses kept on an explicit
+	 **   stack, so that the `<expression remainder>`s they opened can be
+	 **   finished when the level ends.
 	 **
 	 **	@throws IOException in the event that the `LexicalAnalyser` can no
 	 **		longer read.
 	 **   @throws CompilationException in the event that the syntax analysis
 	 **      fails
 	 **/
-   public void _expressionRemainder_() throws IOException, CompilationException {
-      int currLine = nextToken.lineNumber;
-		try {
-         myGenerate.commenceNonterminal("<NEW expression remainder>");
+   void chainedExpression() throws IOException, CompilationException {
+      boolean flat = (expressions == ExpressionMode.FLAT);
+      int level = 0;
+      chains[0] = 0;
+      rules.push(Rule.EXPRESSION, nextToken.lineNumber);
+      commence(Rule.EXPRESSION);
+      operands:
+      while (true) {
+         rules.push(Rule.FACTOR, nextToken.lineNumber);
+         commence(Rule.FACTOR);
          switch (nextToken.symbol) {
-         case Token.plusSymbol:
-            acceptTerminal(Token.plusSymbol);
-            _factor_();
-            break;
-         case Token.minusSymbol:
-            acceptTerminal(Token.minusSymbol);
-            _factor_();
-            break;
-         case Token.timesSymbol:
-            acceptTerminal(Token.timesSymbol);
-            _factor_();
-            break;
-         case Token.divideSymbol:
-            acceptTerminal(Token.divideSymbol);
-            _factor_();
+         case Token.identifier:
+            acceptTerminal(Token.identifier);
             break;
-         case Token.rightParenthesis:
-         case Token.semicolonSymbol:
+         case Token.numberConstant:
+            acceptTerminal(Token.numberConstant);
             break;
+         case Token.leftParenthesis:
+            acceptTerminal(Token.leftParenthesis);
+            if (++level == chains.length)
+               chains = Arrays.copyOf(chains, level * 2);
+            chains[level] = 0;
+            rules.push(Rule.EXPRESSION, nextToken.lineNumber);
+            commence(Rule.EXPRESSION);
+            continue operands;
          default:
-            String errString = "'+', '-', '*', '/', ')' or ';' at line "+currLine;
-            myGenerate.reportError(nextToken, errString);
-            throw new CompilationException(errString);
+            String errString = "'identifier', 'numberConstant' or '(' at line "+nextToken.lineNumber;
+            error(errString);
+            throw new StacklessCompilationException(errString);
+         }
+         finish(Rule.FACTOR);
+         rules.pop();
+         
+         // After each operand comes another operator, or the end of the
+         // level and possibly of the levels around it.
+         while (true) {
+            int symbol = nextToken.symbol;
+            boolean operator = (symbol == Token.plusSymbol || symbol == Token.minusSymbol
+               || symbol == Token.timesSymbol || symbol == Token.divideSymbol);
+            boolean first = (chains[level] == 0);
+            if (!flat && (first || operator)) {
+               rules.push(Rule.EXPRESSION_REMAINDER, nextToken.lineNumber);
+               commence(Rule.EXPRESSION_REMAINDER);
+            }
+            if (operator) {
+               chains[level]++;
+               acceptTerminal(symbol);
+               continue operands;
+            }
+            if (first) {
+               if (symbol != Token.rightParenthesis && symbol != Token.semicolonSymbol) {
+                  String errString = "'+', '-', '*', '/', ')' or ';' at line "+nextToken.lineNumber;
+                  error(errString);
+                  throw new StacklessCompilationException(errString);
+               }
+               if (!flat) {
+                  finish(Rule.EXPRESSION_REMAINDER);
+                  rules.pop();
+               }
+            }
+            for (int i = flat ? chains[level] : 0; i < chains[level]; i++) {
+               finish(Rule.EXPRESSION_REMAINDER);
+               rules.pop();
+            }
+            finish(Rule.EXPRESSION);
+            rules.pop();
+            if (level == 0)
+               return;
+            level--;
+            acceptTerminal(Token.rightParenthesis);
+            finish(Rule.FACTOR);
+            rules.pop();
          }
-         myGenerate.finishNonterminal("<NEW expression remainder>");
-      } catch (CompilationException ex) {
-         String errString = "'<NEW expression remainder>' at line "+currLine+".";
-         throw new CompilationException(errString, ex);
       }
    }
    
+	/**
+	 **   Syntactically analyse the `<expression remainder>` non-terminal token,
+	 **   which I have added to the language grammar.
+	 **
+	 **	@throws IOException in the event that the `LexicalAnalyser` can no
+	 **		longer read.
+	 **   @throws CompilationException in the event that the syntax analysis
+	 **      fails
+	 **/
+   public void _expressionRemainder_() throws IOException, CompilationException {
+      rules.push(Rule.EXPRESSION_REMAINDER, nextToken.lineNumber);
+      commence(Rule.EXPRESSION_REMAINDER);
+      switch (nextToken.symbol) {
+      case Token.plusSymbol:
+         acceptTerminal(Token.plusSymbol);
+         _factor_();
+         break;
+      case Token.minusSymbol:
+         acceptTerminal(Token.minusSymbol);
+         _factor_();
+         break;
+      case Token.timesSymbol:
+         acceptTerminal(Token.timesSymbol);
+         _factor_();
+         break;
+      case Token.divideSymbol:
+         acceptTerminal(Token.divideSymbol);
+         _factor_();
+         break;
+      case Token.rightParenthesis:
+      case Token.semicolonSymbol:
+         break;
+      default:
+         String errString = "'+', '-', '*', '/', ')' or ';' at line "+nextToken.lineNumber;
+         error(errString);
+         throw new StacklessCompilationException(errString);
+      }
+      finish(Rule.EXPRESSION_REMAINDER);
+      rules.pop();
+   }
+   
 	/**
 	 **   Syntactically analyse the `<factor>` non-terminal token.
 	 **
@@ -370,31 +750,27 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
 	 **      fails
 	 **/
    public void _factor_() throws IOException, CompilationException {
-      int currLine = nextToken.lineNumber;
-		try {
-         myGenerate.commenceNonterminal("<factor>");
-         switch(nextToken.symbol) {
-         case Token.identifier:
-            acceptTerminal(Token.identifier);
-            break;
-         case Token.numberConstant:
-            acceptTerminal(Token.numberConstant);
-            break;
-         case Token.leftParenthesis:
-            acceptTerminal(Token.leftParenthesis);
-            _expression_();
-            acceptTerminal(Token.rightParenthesis);
-            break;
-         default:
-            String errString = "'identifier', 'numberConstant' or '(' at line "+currLine;
-            myGenerate.reportError(nextToken, errString);
-            throw new CompilationException(errString);
-         }
-         myGenerate.finishNonterminal("<factor>");
-      } catch (CompilationException ex) {
-         String errString = "'<factor>' at line "+currLine+".";
-         throw new CompilationException(errString, ex);
+      rules.push(Rule.FACTOR, nextToken.lineNumber);
+      commence(Rule.FACTOR);
+      switch(nextToken.symbol) {
+      case Token.identifier:
+         acceptTerminal(Token.identifier);
+         break;
+      case Token.numberConstant:
+         acceptTerminal(Token.numberConstant);
+         break;
+      case Token.leftParenthesis:
+         acceptTerminal(Token.leftParenthesis);
+         _expression_();
+         acceptTerminal(Token.rightParenthesis);
+         break;
+      default:
+         String errString = "'identifier', 'numberConstant' or '(' at line "+nextToken.lineNumber;
+         error(errString);
+         throw new StacklessCompilationException(errString);
       }
+      finish(Rule.FACTOR);
+      rules.pop();
    } 
    
 	/**
@@ -406,19 +782,15 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
 	 **      fails
 	 **/
    public void _argumentList_() throws IOException, CompilationException {
-      int currLine = nextToken.lineNumber;
-		try {
-         myGenerate.commenceNonterminal("<argument list>");
-         acceptTerminal(Token.identifier);
-         while (nextToken.symbol == Token.commaSymbol) {
-            acceptTerminal(Token.commaSymbol);
-            _argumentList_();
-         }
-         myGenerate.finishNonterminal("<argument list>");
-      } catch (CompilationException ex) {
-         String errString = "'<argument list>' at line "+currLine+".";
-         throw new CompilationException(errString, ex);
+      rules.push(Rule.ARGUMENT_LIST, nextToken.lineNumber);
+      commence(Rule.ARGUMENT_LIST);
+      acceptTerminal(Token.identifier);
+      while (nextToken.symbol == Token.commaSymbol) {
+         acceptTerminal(Token.commaSymbol);
+         _argumentList_();
       }
+      finish(Rule.ARGUMENT_LIST);
+      rules.pop();
    } 
    
 	/**
@@ -430,17 +802,13 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
 	 **      fails
 	 **/
    public void _condition_() throws IOException, CompilationException {
-      int currLine = nextToken.lineNumber;
-		try {
-         myGenerate.commenceNonterminal("<condition>");
-         acceptTerminal(Token.identifier);
-         _conditionalOperator_();
-         _conditionRemainder_();
-         myGenerate.finishNonterminal("<condition>");
-      } catch (CompilationException ex) {
-         String errString = "'<condition>' at line "+currLine+".";
-         throw new CompilationException(errString, ex);
-      }
+      rules.push(Rule.CONDITION, nextToken.lineNumber);
+      commence(Rule.CONDITION);
+      acceptTerminal(Token.identifier);
+      _conditionalOperator_();
+      _conditionRemainder_();
+      finish(Rule.CONDITION);
+      rules.pop();
    }
    
 	/**
@@ -453,29 +821,25 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
 	 **      fails
 	 **/
    public void _conditionRemainder_() throws IOException, CompilationException {
-      int currLine = nextToken.lineNumber;
-		try {
-         myGenerate.commenceNonterminal("<NEW condition remainder>");
-         switch (nextToken.symbol) {
-         case Token.identifier:
-            acceptTerminal(Token.identifier);
-            break;
-         case Token.numberConstant:
-            acceptTerminal(Token.numberConstant);
-            break;
-         case Token.stringConstant:
-            acceptTerminal(Token.numberConstant);
-            break;
-         default:
-            String errString = "'identifier', 'numberConstant' or 'stringConstant' at line "+currLine;
-            myGenerate.reportError(nextToken, errString);
-            throw new CompilationException(errString);
-         }
-         myGenerate.finishNonterminal("<NEW condition remainder>");
-      } catch (CompilationException ex) {
-         String errString = "'<NEW condition remainder>' at line "+currLine+".";
-         throw new CompilationException(errString, ex);
+      rules.push(Rule.CONDITION_REMAINDER, nextToken.lineNumber);
+      commence(Rule.CONDITION_REMAINDER);
+      switch (nextToken.symbol) {
+      case Token.identifier:
+         acceptTerminal(Token.identifier);
+         break;
+      case Token.numberConstant:
+         acceptTerminal(Token.numberConstant);
+         break;
+      case Token.stringConstant:
+         acceptTerminal(Token.numberConstant);
+         break;
+      default:
+         String errString = "'identifier', 'numberConstant' or 'stringConstant' at line "+nextToken.lineNumber;
+         error(errString);
+         throw new StacklessCompilationException(errString);
       }
+      finish(Rule.CONDITION_REMAINDER);
+      rules.pop();
    }
    
 	/**
@@ -487,44 +851,97 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
 	 **      fails
 	 **/
    public void _conditionalOperator_() throws IOException, CompilationException {
-      int currLine = nextToken.lineNumber;
-		try {
-         myGenerate.commenceNonterminal("<conditional operator>");
-         switch (nextToken.symbol) {
-         case Token.greaterThanSymbol:
-            acceptTerminal(Token.greaterThanSymbol);
-            break;
-         case Token.greaterEqualSymbol:
-            acceptTerminal(Token.greaterEqualSymbol);
-            break;
-         case Token.equalSymbol:
-            acceptTerminal(Token.equalSymbol);
-            break;
-         case Token.notEqualSymbol:
-            acceptTerminal(Token.notEqualSymbol);
-            break;
-         case Token.lessThanSymbol:
-            acceptTerminal(Token.lessThanSymbol);
-            break;
-         case Token.lessEqualSymbol:
-            acceptTerminal(Token.lessEqualSymbol);
-            break;
-         default:
-            String errString = "'>', '>=', '=', '/=', '<' or '<=' at line "+currLine;
-            myGenerate.reportError(nextToken, errString);
-            throw new CompilationException(errString);
-         }
-         myGenerate.finishNonterminal("<conditional operator>");
-      } catch (CompilationException ex) {
-         String errString = "'<conditional operator>' at line "+currLine+".";
-         throw new CompilationException(errString, ex);
+      rules.push(Rule.CONDITIONAL_OPERATOR, nextToken.lineNumber);
+      commence(Rule.CONDITIONAL_OPERATOR);
+      switch (nextToken.symbol) {
+      case Token.greaterThanSymbol:
+         acceptTerminal(Token.greaterThanSymbol);
+         break;
+      case Token.greaterEqualSymbol:
+         acceptTerminal(Token.greaterEqualSymbol);
+         break;
+      case Token.equalSymbol:
+         acceptTerminal(Token.equalSymbol);
+         break;
+      case Token.notEqualSymbol:
+         acceptTerminal(Token.notEqualSymbol);
+         break;
+      case Token.lessThanSymbol:
+         acceptTerminal(Token.lessThanSymbol);
+         break;
+      case Token.lessEqualSymbol:
+         acceptTerminal(Token.lessEqualSymbol);
+         break;
+      default:
+         String errString = "'>', '>=', '=', '/=', '<' or '<=' at line "+nextToken.lineNumber;
+         error(errString);
+         throw new StacklessCompilationException(errString);
       }
+      finish(Rule.CONDITIONAL_OPERATOR);
+      rules.pop();
+   }
+   
+   /**
+    **   Sends the start of a non-terminal to the generator, if it is
+    **   subscribed to, once it has been pushed onto the rule stack.
+    **
+    **   @param rule The non-terminal's rule.
+    **   @throws ResourceLimitException in the event that the rule stack is
+    **      deeper than the depth limit.
+    **/
+   void commence(Rule rule) throws ResourceLimitException {
+      if (rules.depth > depthLimit)
+         throw new ResourceLimitException("more than "+depthLimit+" nested non-terminals at line "+nextToken.lineNumber);
+      if (subscription == null) {
+         myGenerate.commenceNonterminal(rule);
+      } else if (subscription.rules[rule.id()]) {
+         scope++;
+         myGenerate.commenceNonterminal(rule);
+      }
+   }
+   
+   /**
+    **   Sends the end of a non-terminal to the generator, if it is subscribed
+    **   to.
+    **
+    **   @param rule The non-terminal's rule.
+    **/
+   void finish(Rule rule) {
+      if (subscription == null) {
+         myGenerate.finishNonterminal(rule);
+      } else if (subscription.rules[rule.id()]) {
+         scope--;
+         myGenerate.finishNonterminal(rule);
+      }
+   }
+   
+   /**
+    **   Reports a syntax error at the current token to the generator, which
+    **   throws it. If errors are not subscribed to, the error is thrown
+    **   without the generator, with the message the generators give it.
+    **   Either way, the token's text is filled in first if it was deferred.
+    **
+    **   @param errString What was expected instead.
+    **   @throws CompilationException in the event that the generator throws
+    **      it, or errors are not subscribed to.
+    **/
+   void error(String errString) throws CompilationException {
+      String text = ByteBufferLexicalAnalyser.text(nextToken);
+      if (subscription == null || subscription.errors)
+         myGenerate.reportError(nextToken, errString);
+      else
+         throw new StacklessCompilationException("expected "+errString+", found: '"+text+"'");
    }
    
 	/**
 	 **   Accepts an expected terminal symbol and tests that the current token
 	 **   matches what is expects. If not, throws a `CompilationError` with
 	 **   details of the discrepancy between the expected and found token.
+	 **
+	 **   The current token is passed to the generator as it is rather than
+	 **   copied, so generators must not hold on to it after `insertTerminal()`
+	 **   returns. Its text is filled in first if the lexer deferred it, and
+	 **   only then, so tokens no generator is given never get one.
 	 **  
 	 **   @param symbol The symbol to expect at the next token.
 	 **   @throws IOException in the event that the `LexicalAnalyser` can no
@@ -534,31 +951,56 @@ public class SyntaxAnalyser extends AbstractSyntaxAnalyser {
 	 **/
 	public void acceptTerminal(int symbol) throws IOException, CompilationException {
       if (nextToken.symbol == symbol) {
-         myGenerate.insertTerminal(new Token(symbol, nextToken.text, nextToken.lineNumber));
+         if (subscription == null || subscription.wants(symbol, scope)) {
+            ByteBufferLexicalAnalyser.text(nextToken);
+            myGenerate.insertTerminal(nextToken);
+         }
+         lastSymbol = symbol;
+         tokenCount++;
          nextToken = lex.getNextToken();
+         if (tokenCount >= nextCheck)
+            checkLimits();
       } else {
          String errString = "'"+Token.getName(symbol)+"' at line "+nextToken.lineNumber;
-         myGenerate.reportError(nextToken, errString);
+         error(errString);
       }
    }
 	
 	/**
 	 **   Parses the given `PrintStream` with this instance's `LexicalAnalyser`.
+	 **   The generator's output is flushed and the token source closed once
+	 **   the file has been parsed, whether or not it succeeded. On a
+	 **   syntax error, the trace is built from the rule stack as it was when
+	 **   the error was thrown. With recovery on, the traces of every error
+	 **   found are printed together once the whole file has been parsed. A
+	 **   parse stopped by its `ParseLimits` prints a `Resource Limit
+	 **   Exceeded` diagnostic instead.
 	 **
 	 **   @param ps The `PrintStream` object to read tokens from.
 	 **   @throws IOException in the event that the `PrintStream` object can no
 	 **      longer read.
 	 **/
 	public void parse(PrintStream ps) throws IOException {
-		myGenerate = new Generate();
+		if (myGenerate == null)
+			myGenerate = new Generate();
+		rules.clear();
+		diagnostics.clear();
+		scope = 0;
 		try {
 			nextToken = lex.getNextToken();
 			_statementPart_();
 			acceptTerminal(Token.eofSymbol);
-			myGenerate.reportSuccess();
+			if (diagnostics.isEmpty() && (subscription == null || subscription.success))
+				myGenerate.reportSuccess();
 		} catch(CompilationException ex) {
-			ps.println("Compilation Exception");
-			ps.println(ex.toTraceString());
+			record(ex);
+		} finally {
+			myGenerate.flush();
+			for (Diagnostic diagnostic : diagnostics) {
+				ps.println(diagnostic.heading());
+				ps.println(diagnostic.trace);
+			}
+			lex.close();
 		}
 	}
 }
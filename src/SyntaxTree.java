@@ -0,0 +1,281 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a concrete syntax tree, as built by `TreeGenerate`.
+ **
+ ** Nodes are ints rather than objects; each one is an index into parallel
+ ** arrays holding its id, parent, first child, next sibling, line and token
+ ** index. A non-terminal's id is its rule id, and a terminal's is the
+ ** complement of its token symbol, so that terminals have negative ids.
+ **/
+
+import java.util.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class SyntaxTree {
+   /** The node returned when there is no parent, child or sibling. */
+   public static final int NONE = -1;
+   
+   int[] ids;
+   int[] parents;
+   int[] firstChildren;
+   int[] nextSiblings;
+   int[] lines;
+   int[] tokenIndices;
+   int size;
+   String[] texts;
+   int tokens;
+   boolean complete;
+   int[] textIds;
+   InternPool pool;
+   
+   /**
+    **   Constructor function. Takes over the given arrays, which hold `size`
+    **   nodes and `tokens` token texts. With a pool, the texts are held as
+    **   ids in `textIds`, and `texts` only holds those the pool did not take,
+    **   each at the complement of its id.
+    **/
+   SyntaxTree(int[] ids, int[] parents, int[] firstChildren, int[] nextSiblings, int[] lines,
+         int[] tokenIndices, int size, String[] texts, int tokens, boolean complete,
+         int[] textIds, InternPool pool) {
+      this.textIds = textIds;
+      this.pool = pool;
+      this.ids = ids;
+      this.parents = parents;
+      this.firstChildren = firstChildren;
+      this.nextSiblings = nextSiblings;
+      this.lines = lines;
+      this.tokenIndices = tokenIndices;
+      this.size = size;
+      this.texts = texts;
+      this.tokens = tokens;
+      this.complete = complete;
+   }
+   
+   /**
+    **   Returns the number of nodes in the tree.
+    **
+    **   @return The number of nodes.
+    **/
+   public int size() {
+      return size;
+   }
+   
+   /**
+    **   Returns the number of terminals in the tree.
+    **
+    **   @return The number of terminals.
+    **/
+   public int tokenCount() {
+      return tokens;
+   }
+   
+   /**
+    **   Returns whether the parse the tree was built from succeeded. If not,
+    **   the tree holds what was parsed before the error.
+    **
+    **   @return Whether the tree is complete.
+    **/
+   public boolean isComplete() {
+      return complete;
+   }
+   
+   /**
+    **   Returns the root node, i.e. the `<statement part>`.
+    **
+    **   @return The root, or `NONE` if the tree is empty.
+    **/
+   public int root() {
+      return size == 0 ? NONE : 0;
+   }
+   
+   /**
+    **   Returns whether a node is a terminal.
+    **
+    **   @param node The node.
+    **   @return Whether the node is a terminal.
+    **/
+   public boolean isTerminal(int node) {
+      return ids[node] < 0;
+   }
+   
+   /**
+    **   Returns the rule of a non-terminal node.
+    **
+    **   @param node The node.
+    **   @return The rule, or `null` for a terminal.
+    **/
+   public Rule rule(int node) {
+      return ids[node] < 0 ? null : Rule.byId(ids[node]);
+   }
+   
+   /**
+    **   Returns the token symbol of a terminal node.
+    **
+    **   @param node The node.
+    **   @return The symbol, or -1 for a non-terminal.
+    **/
+   public int symbol(int node) {
+      return ids[node] < 0 ? ~ids[node] : -1;
+   }
+   
+   /**
+    **   Returns the parent of a node.
+    **
+    **   @param node The node.
+    **   @return The parent, or `NONE` for the root.
+    **/
+   public int parent(int node) {
+      return parents[node];
+   }
+   
+   /**
+    **   Returns the first child of a node.
+    **
+    **   @param node The node.
+    **   @return The first child, or `NONE` if it has none.
+    **/
+   public int firstChild(int node) {
+      return firstChildren[node];
+   }
+   
+   /**
+    **   Returns the next sibling of a node.
+    **
+    **   @param node The node.
+    **   @return The next sibling, or `NONE` if it is the last child.
+    **/
+   public int nextSibling(int node) {
+      return nextSiblings[node];
+   }
+   
+   /**
+    **   Returns the line of a node: that of the token for a terminal, and that
+    **   of its first token for a non-terminal. An empty non-terminal takes the
+    **   line of the token before it.
+    **
+    **   @param node The node.
+    **   @return The line number.
+    **/
+   public int line(int node) {
+      return lines[node];
+   }
+   
+   /**
+    **   Returns the position of a terminal's token in the file.
+    **
+    **   @param node The node.
+    **   @return The token index, counting from 0, or -1 for a non-terminal.
+    **/
+   public int tokenIndex(int node) {
+      return tokenIndices[node];
+   }
+   
+   /**
+    **   Returns the text of a terminal's token.
+    **
+    **   @param node The node.
+    **   @return The text, or `null` for a non-terminal.
+    **/
+   public String text(int node) {
+      return ids[node] < 0 ? tokenText(tokenIndices[node]) : null;
+   }
+   
+   /**
+    **   Returns the id in the tree's `InternPool` of the text of a
+    **   terminal's token, so that tokens can be compared and indexed without
+    **   their strings.
+    **
+    **   @param node The node.
+    **   @return The id, or `InternPool.NONE` for a non-terminal, a text the
+    **      pool did not take or a tree built without a pool.
+    **/
+   public int textId(int node) {
+      if (ids[node] >= 0 || textIds == null)
+         return InternPool.NONE;
+      return Math.max(textIds[tokenIndices[node]], InternPool.NONE);
+   }
+   
+   /**
+    **   Returns the text of the token with the given index.
+    **
+    **   @param index The token index.
+    **   @return The text.
+    **/
+   String tokenText(int index) {
+      if (textIds == null)
+         return texts[index];
+      int id = textIds[index];
+      return (id >= 0) ? pool.text(id) : texts[~id];
+   }
+   
+   /**
+    **   Sends the tree to a generator as the events that built it, e.g. to
+    **   print it with `Generate`. The walk uses the sibling links rather than
+    **   recursion, so it copes with trees of any depth. Every terminal is
+    **   sent in the same `Token`, refilled each time, so that the walk
+    **   allocates nothing per node; as with the analysers, the generator
+    **   must not hold on to it after `insertTerminal()` returns.
+    **
+    **   @param generate The generator to send the events to.
+    **/
+   public void write(AbstractGenerate generate) {
+      Token token = new Token(Token.eofSymbol, "", 0);
+      int node = root();
+      while (node != NONE) {
+         int id = ids[node];
+         if (id < 0) {
+            token.symbol = ~id;
+            token.text = tokenText(tokenIndices[node]);
+            token.lineNumber = lines[node];
+            generate.insertTerminal(token);
+         } else {
+            Rule rule = Rule.byId(id);
+            generate.commenceNonterminal(rule);
+            if (firstChildren[node] != NONE) {
+               node = firstChildren[node];
+               continue;
+            }
+            generate.finishNonterminal(rule);
+         }
+         while (node != NONE && nextSiblings[node] == NONE) {
+            node = parents[node];
+            if (node != NONE)
+               generate.finishNonterminal(Rule.byId(ids[node]));
+         }
+         if (node != NONE)
+            node = nextSiblings[node];
+      }
+      if (complete)
+         generate.reportSuccess();
+   }
+}
@@ -0,0 +1,133 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents an alternative syntax analyser that parses with the
+ ** dense LL(1) prediction table built by `Grammar` and an explicit stack,
+ ** rather than with one recursive method per non-terminal. It emits exactly
+ ** the same generator events and errors as `SyntaxAnalyser`, so the two can be
+ ** benchmarked against one another and swapped freely. It has neither error
+ ** recovery nor the chained expression modes, so it ignores those settings;
+ ** `ParseMode.newAnalyser()` rejects them for `ParseMode.ITERATIVE`.
+ **/
+
+import java.io.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class TableDrivenAnalyser extends SyntaxAnalyser {
+   static final Grammar GRAMMAR = Grammar.scc();
+   
+   int[] stack = new int[256];
+   int sp = 0;
+   
+   /**
+    **   Constructor function. Creates a new Lexical Analyser using the given
+    **   filename.
+    **
+    **   @param fileName The name of the file to syntactically analyse.
+    **   @throws IOException in the event that the file can not be opened.
+    **/
+   public TableDrivenAnalyser(String fileName) throws IOException {
+      super(fileName);
+   }
+   
+   /**
+    **   Constructor function. Creates an analyser with no input, for use with
+    **   `reset()`.
+    **
+    **   @param generate The generator to send the parse output to.
+    **/
+   public TableDrivenAnalyser(AbstractGenerate generate) {
+      super(generate);
+   }
+   
+   /**
+    **   Parses the `<statement part>` by repeatedly popping the stack: a
+    **   terminal is matched against the next token, a non-terminal is
+    **   replaced by the production the table predicts for the next token, and
+    **   an end marker finishes the non-terminal it belongs to.
+    **
+    **   The stack holds a terminal as its `Token` symbol, a non-terminal `n`
+    **   as `-1 - n` and the end marker of rule `r` as `-1 - count - r`, where
+    **   `count` is the number of non-terminals in the grammar.
+    **
+    **   @throws IOException in the event that the `LexicalAnalyser` can no
+    **      longer read.
+    **   @throws CompilationException in the event that the syntax analysis
+    **      fails
+    **/
+   public void _statementPart_() throws IOException, CompilationException {
+      int[][] table = GRAMMAR.table;
+      int count = table.length;
+      int ruleCount = Rule.count();
+      sp = 0;
+      if (stack.length > RuleStack.SHRINK_SIZE)
+         stack = new int[256];
+      push(Grammar.nt(Rule.STATEMENT_PART));
+      while (sp > 0) {
+         int top = stack[--sp];
+         if (top >= 0) {
+            acceptTerminal(top);
+         } else if (top >= -count) {
+            int n = -1 - top;
+            if (n < ruleCount) {
+               Rule rule = Rule.byId(n);
+               rules.push(rule, nextToken.lineNumber);
+               commence(rule);
+               push(-1 - count - n);
+            }
+            int p = table[n][GRAMMAR.column(nextToken.symbol)];
+            if (p == Grammar.NO_PRODUCTION) {
+               String errString = GRAMMAR.errorMessages.get(n)+" at line "+nextToken.lineNumber;
+               error(errString);
+               throw new StacklessCompilationException(errString);
+            }
+            int[] body = GRAMMAR.bodies[p];
+            for (int i = body.length - 1; i >= 0; i--)
+               push(body[i]);
+         } else {
+            finish(Rule.byId(-1 - count - top));
+            rules.pop();
+         }
+      }
+   }
+   
+   /**
+    **   Pushes a symbol onto the stack, growing it as needed.
+    **
+    **   @param symbol The encoded symbol.
+    **/
+   void push(int symbol) {
+      if (sp == stack.length)
+         stack = java.util.Arrays.copyOf(stack, sp * 2);
+      stack[sp++] = symbol;
+   }
+}
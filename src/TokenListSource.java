@@ -0,0 +1,72 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a `TokenSource` over tokens that have already been
+ ** lexed, e.g. a region of a file or a chunk of a larger token stream. Once
+ ** the tokens run out, a terminator token is returned from then on.
+ **/
+
+import java.util.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class TokenListSource implements TokenSource {
+   List<Token> tokens;
+   int next;
+   int end;
+   Token terminator;
+   
+   /**
+    **   Constructor function.
+    **
+    **   @param tokens The tokens.
+    **   @param from The index of the first token to return.
+    **   @param to The index after the last token to return.
+    **   @param terminator The token to return once the range runs out,
+    **      usually an end of file token.
+    **/
+   public TokenListSource(List<Token> tokens, int from, int to, Token terminator) {
+      this.tokens = tokens;
+      this.next = from;
+      this.end = to;
+      this.terminator = terminator;
+   }
+   
+   /**
+    **   Returns the next token in the range, or the terminator once the range
+    **   has run out.
+    **
+    **   @return The next token.
+    **/
+   public Token getNextToken() {
+      return (next < end) ? tokens.get(next++) : terminator;
+   }
+}
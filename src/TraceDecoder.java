@@ -0,0 +1,220 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a decoder that turns the binary event stream written
+ ** by `BinaryGenerate` back into the textual `rgg*` output.
+ **/
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class TraceDecoder {
+   InputStream in;
+   OutputSink out;
+   ArrayList<String> strings = new ArrayList<String>();
+   int lastLine = 0;
+   
+   /**
+    **   Constructor function. Creates a new decoder.
+    **
+    **   @param in The binary event stream to read.
+    **   @param out The `OutputSink` to write the textual output to.
+    **/
+   public TraceDecoder(InputStream in, OutputSink out) {
+      this.in = in;
+      this.out = out;
+   }
+   
+   /**
+    **   Decodes the whole event stream, writing the equivalent textual output
+    **   line by line.
+    **
+    **   @throws IOException in the event that the stream can not be read or is
+    **      malformed.
+    **/
+   public void decode() throws IOException {
+      int kind;
+      while ((kind = readVarint(true)) >= 0) {
+         switch (kind) {
+         case BinaryGenerate.START:
+            int version = readVarint(false);
+            if (version != BinaryGenerate.VERSION)
+               throw new IOException("unsupported event stream version "+version);
+            out.print("rggSTART").println();
+            break;
+         case BinaryGenerate.FILE:
+            strings.clear();
+            lastLine = 0;
+            out.println();
+            out.print("rggFILE ").print(readString()).println();
+            break;
+         case BinaryGenerate.BEGIN:
+            out.print("rggBEGIN ").print(readString()).println();
+            break;
+         case BinaryGenerate.END:
+            out.print("rggEND ").print(readString()).println();
+            break;
+         case BinaryGenerate.BEGIN_RULE:
+            out.print("rggBEGIN ").print(readRule().eventName).println();
+            break;
+         case BinaryGenerate.END_RULE:
+            out.print("rggEND ").print(readRule().eventName).println();
+            break;
+         case BinaryGenerate.TOKEN:
+            int symbol = readVarint(false);
+            int delta = readVarint(false);
+            lastLine += (delta >>> 1) ^ -(delta & 1);
+            out.print("rggTOKEN ").print(symbolName(symbol));
+            if((symbol == Token.identifier) || 
+               (symbol == Token.numberConstant) || 
+               (symbol == Token.stringConstant)) {
+               out.print(" '").print(readString()).print("'");
+            }
+            out.print(" on line ").print(lastLine).println();
+            break;
+         case BinaryGenerate.SUCCESS:
+            out.print("rggSUCCESS").println();
+            break;
+         case BinaryGenerate.ERROR:
+            String explanatoryMessage = readString();
+            out.print("rggCOMPILATION_EXCEPTION").println();
+            out.print("rggEXPECTED ").print(explanatoryMessage).print(", found: '").print(readString()).print("'").println();
+            break;
+         default:
+            throw new IOException("unknown event kind "+kind);
+         }
+      }
+      out.flush();
+   }
+   
+   /**
+    **   Reads an unsigned varint.
+    **
+    **   @param eofAllowed Whether the end of the stream may be reached before
+    **      the first byte, i.e. between events.
+    **   @return The value read, or -1 at the end of the stream.
+    **   @throws IOException in the event that the stream ends mid-varint.
+    **/
+   int readVarint(boolean eofAllowed) throws IOException {
+      int n = 0;
+      for (int shift = 0; ; shift += 7) {
+         int b = in.read();
+         if (b < 0) {
+            if (eofAllowed && shift == 0)
+               return -1;
+            throw new EOFException("truncated event stream");
+         }
+         if (shift > 28 || (shift == 28 && (b & 0x70) != 0))
+            throw new IOException("malformed varint");
+         n |= (b & 0x7F) << shift;
+         if ((b & 0x80) == 0)
+            return n;
+      }
+   }
+   
+   /**
+    **   Reads the persisted id of a rule.
+    **
+    **   @return The rule.
+    **   @throws IOException in the event that the id is not that of a rule.
+    **/
+   Rule readRule() throws IOException {
+      int code = readVarint(false);
+      Rule rule = Rule.byCode(code);
+      if (rule == null)
+         throw new IOException("unknown rule "+code);
+      return rule;
+   }
+   
+   /**
+    **   Returns the name of a token symbol read from the stream.
+    **
+    **   @param symbol The symbol.
+    **   @return The name.
+    **   @throws IOException in the event that the symbol is not that of a
+    **      token.
+    **/
+   String symbolName(int symbol) throws IOException {
+      String name;
+      try {
+         name = Token.getName(symbol);
+      } catch (RuntimeException ex) {
+         name = null;
+      }
+      if (name == null)
+         throw new IOException("unknown token symbol "+symbol);
+      return name;
+   }
+   
+   /**
+    **   Reads a reference to an interned string, reading the string itself if
+    **   this is its first occurrence.
+    **
+    **   @return The string.
+    **   @throws IOException in the event that the stream is malformed.
+    **/
+   String readString() throws IOException {
+      int id = readVarint(false);
+      if (id < strings.size())
+         return strings.get(id);
+      if (id != strings.size())
+         throw new IOException("undefined string "+id);
+      int length = readVarint(false);
+      if (length < 0)
+         throw new IOException("malformed string length "+length);
+      // Read in chunks rather than allocating a corrupt length up front.
+      byte[] bytes = in.readNBytes(length);
+      if (bytes.length != length)
+         throw new EOFException("truncated event stream");
+      String s = new String(bytes, StandardCharsets.UTF_8);
+      strings.add(s);
+      return s;
+   }
+   
+   /**
+    **   Decodes a binary event stream. Usage:
+    **
+    **      java TraceDecoder trace.bin [output.txt]
+    **
+    **   @param args The command-line arguments.
+    **   @throws IOException in the event that the files can not be accessed.
+    **/
+   public static void main(String[] args) throws IOException {
+      try (InputStream in = new BufferedInputStream(new FileInputStream(args[0]), OutputSink.DEFAULT_SIZE)) {
+         OutputSink out = (args.length > 1) ? new OutputSink(new FileOutputStream(args[1])) : new OutputSink(System.out);
+         new TraceDecoder(in, out).decode();
+         out.close();
+      }
+   }
+}
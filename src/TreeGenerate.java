@@ -0,0 +1,285 @@
+/*
+ *                             Syntaxalyser 1.0                        
+ *             Copyright © 2017 Ben Goldsworthy (rumperuu)        
+ *                                                                      
+ * A program to syntactically analyse programs written in SCC# using recursive
+ * descent. I have added four new non-terminals `<assignment statement 
+ * remainder>`, `<if statement remainder>`, `<expression remainder>` and
+ * `<condition remainder>`, which were the results of applying left-recursion
+ * to a number of original productions. I have also removed the `<term>`
+ * non-terminal and rolled it into the `<factor>` non-terminal for simplicity,
+ * as `<term>` was redundant.
+ *                                                                           
+ * This file is part of Syntaxalyser.                                         
+ *                                                                            
+ * PcapCrack is free software: you can redistribute it and/or modify        
+ * it under the terms of the GNU General Public License as published by       
+ * the Free Software Foundation, either version 3 of the License, or          
+ * (at your option) any later version.                                        
+ *                                                                            
+ * PcapCrack is distributed in the hope that it will be useful,             
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of             
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the              
+ * GNU General Public License for more details.                               
+ *                                                                            
+ * You should have received a copy of the GNU General Public License          
+ * along with PcapCrack.  If not, see <http://www.gnu.org/licenses/>.       
+ */
+
+/**
+ ** This class represents a generator that builds a `SyntaxTree` from the
+ ** parse, rather than printing it, for tools that need its structure.
+ **
+ ** The tree is built straight into parallel arrays, six ints per node plus
+ ** a reference to the text of each token, so that building it costs little
+ ** more than the parse itself. Given an `InternPool`, each token's text is
+ ** kept as its id in the pool instead, so that trees kept from many files
+ ** share one copy of each name.
+ **/
+
+import java.util.*;
+
+/**
+ **   @author  Ben Goldsworthy (rumperuu) <me+syntaxalyser@bengoldsworthy.uk>
+ **   @version 1.0
+ **/
+public class TreeGenerate extends AbstractGenerate {
+   static final int INITIAL_SIZE = 256;
+   
+   int[] ids;
+   int[] parents;
+   int[] firstChildren;
+   int[] nextSiblings;
+   int[] lines;
+   int[] tokenIndices;
+   int size;
+   String[] texts;
+   int tokens;
+   boolean complete;
+   
+   // With a pool, each token's text id, or the complement of the index in
+   // `texts` of a text the pool did not take.
+   InternPool pool = null;
+   int[] textIds;
+   int unpooled;
+   
+   // The open non-terminals, innermost last, and the last node added at
+   // each depth; the nodes at depth 0, i.e. the root and the EOF token after
+   // it, are siblings.
+   int[] open = new int[64];
+   int[] lastChildren = new int[65];
+   int depth;
+   int lastLine;
+   
+   /**
+    **   Constructor function.
+    **/
+   public TreeGenerate() {
+      allocate(INITIAL_SIZE);
+   }
+   
+   /**
+    **   Constructor function. Creates a generator that keeps token texts as
+    **   ids in the given pool.
+    **
+    **   @param pool The pool, e.g. `InternPool.shared()`.
+    **/
+   public TreeGenerate(InternPool pool) {
+      this.pool = pool;
+      allocate(INITIAL_SIZE);
+   }
+   
+   /**
+    **   Adds a terminal to the innermost open non-terminal. Non-terminals
+    **   that are still waiting for their first token take its line.
+    **
+    **   @param token The terminal token.
+    **/
+   public void insertTerminal(Token token) {
+      if (pool != null) {
+         if (tokens == textIds.length)
+            textIds = Arrays.copyOf(textIds, tokens * 2);
+         int id = pool.id(token.text);
+         if (id == InternPool.NONE) {
+            if (unpooled == texts.length)
+               texts = Arrays.copyOf(texts, unpooled * 2);
+            texts[unpooled] = token.text;
+            id = ~unpooled++;
+         }
+         textIds[tokens] = id;
+      } else {
+         if (tokens == texts.length)
+            texts = Arrays.copyOf(texts, tokens * 2);
+         texts[tokens] = token.text;
+      }
+      add(~token.symbol, token.lineNumber, tokens++);
+      lastLine = token.lineNumber;
+      for (int i = depth - 1; i >= 0 && lines[open[i]] == 0; i--)
+         lines[open[i]] = token.lineNumber;
+   }
+   
+   /**
+    **   Adds a non-terminal to the innermost open one and opens it.
+    **
+    **   @param rule The non-terminal's rule.
+    **/
+   public void commenceNonterminal(Rule rule) {
+      int node = add(rule.id(), 0, -1);
+      if (depth == open.length) {
+         open = Arrays.copyOf(open, depth * 2);
+         lastChildren = Arrays.copyOf(lastChildren, depth * 2 + 1);
+      }
+      open[depth] = node;
+      depth++;
+      lastChildren[depth] = SyntaxTree.NONE;
+   }
+   
+   /**
+    **   Closes the innermost open non-terminal.
+    **
+    **   @param rule The non-terminal's rule.
+    **/
+   public void finishNonterminal(Rule rule) {
+      depth--;
+      if (lines[open[depth]] == 0)
+         lines[open[depth]] = lastLine;
+   }
+   
+   /**
+    **   Adds a non-terminal, resolving its rule from its name.
+    **
+    **   @param name The non-terminal's name.
+    **/
+   public void commenceNonterminal(String name) {
+      commenceNonterminal(rule(name));
+   }
+   
+   /**
+    **   Closes the innermost open non-terminal.
+    **
+    **   @param name The non-terminal's name.
+    **/
+   public void finishNonterminal(String name) {
+      finishNonterminal(rule(name));
+   }
+   
+   /**
+    **   Marks the tree as complete.
+    **/
+   public void reportSuccess() {
+      complete = true;
+   }
+   
+   /**
+    **   Reports an error. Nothing is printed; the tree is left as far as it
+    **   got, and the analyser prints the trace.
+    **
+    **   @param token The token the error was found at.
+    **   @param explanatoryMessage What was expected instead.
+    **   @throws CompilationException always.
+    **/
+   public void reportError(Token token, String explanatoryMessage) throws CompilationException {
+      throw new StacklessCompilationException("expected "+explanatoryMessage+", found: '"+token.text+"'");
+   }
+   
+   /**
+    **   Returns the tree built from the events so far and starts a new one,
+    **   so that the generator can be reused for the next file.
+    **
+    **   @return The tree.
+    **/
+   public SyntaxTree getTree() {
+      SyntaxTree tree = new SyntaxTree(ids, parents, firstChildren, nextSiblings, lines,
+         tokenIndices, size, texts, tokens, complete, textIds, pool);
+      allocate(Math.max(size, INITIAL_SIZE));
+      return tree;
+   }
+   
+   /**
+    **   Discards the tree built so far.
+    **/
+   public void clear() {
+      Arrays.fill(texts, 0, (pool == null) ? tokens : unpooled, null);
+      size = 0;
+      tokens = 0;
+      unpooled = 0;
+      depth = 0;
+      lastChildren[0] = SyntaxTree.NONE;
+      lastLine = 0;
+      complete = false;
+   }
+   
+   /**
+    **   Adds a node as the last child of the innermost open non-terminal.
+    **
+    **   @param id The node's id.
+    **   @param line The node's line, or 0 if it is not yet known.
+    **   @param tokenIndex The node's token index.
+    **   @return The node.
+    **/
+   int add(int id, int line, int tokenIndex) {
+      if (size == ids.length) {
+         int length = size * 2;
+         ids = Arrays.copyOf(ids, length);
+         parents = Arrays.copyOf(parents, length);
+         firstChildren = Arrays.copyOf(firstChildren, length);
+         nextSiblings = Arrays.copyOf(nextSiblings, length);
+         lines = Arrays.copyOf(lines, length);
+         tokenIndices = Arrays.copyOf(tokenIndices, length);
+      }
+      int node = size++;
+      ids[node] = id;
+      lines[node] = line;
+      tokenIndices[node] = tokenIndex;
+      firstChildren[node] = SyntaxTree.NONE;
+      nextSiblings[node] = SyntaxTree.NONE;
+      int parent = depth == 0 ? SyntaxTree.NONE : open[depth - 1];
+      parents[node] = parent;
+      if (lastChildren[depth] != SyntaxTree.NONE)
+         nextSiblings[lastChildren[depth]] = node;
+      else if (parent != SyntaxTree.NONE)
+         firstChildren[parent] = node;
+      lastChildren[depth] = node;
+      return node;
+   }
+   
+   /**
+    **   Allocates fresh arrays for a new tree.
+    **
+    **   @param length The number of nodes to allow for.
+    **/
+   void allocate(int length) {
+      ids = new int[length];
+      parents = new int[length];
+      firstChildren = new int[length];
+      nextSiblings = new int[length];
+      lines = new int[length];
+      tokenIndices = new int[length];
+      if (pool == null) {
+         texts = new String[length / 2 + 1];
+      } else {
+         texts = new String[16];
+         textIds = new int[length / 2 + 1];
+      }
+      size = 0;
+      tokens = 0;
+      unpooled = 0;
+      depth = 0;
+      lastChildren[0] = SyntaxTree.NONE;
+      lastLine = 0;
+      complete = false;
+   }
+   
+   /**
+    **   Resolves a non-terminal's name to its rule.
+    **
+    **   @param name The name.
+    **   @return The rule.
+    **/
+   static Rule rule(String name) {
+      Rule rule = Rule.byEventName(name);
+      if (rule == null)
+         throw new IllegalArgumentException("unknown non-terminal "+name);
+      return rule;
+   }
+}